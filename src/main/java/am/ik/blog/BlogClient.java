@@ -1,6 +1,8 @@
 package am.ik.blog;
 
+import java.time.Instant;
 import java.util.List;
+import java.util.Optional;
 
 import am.ik.blog.model.Category;
 import am.ik.blog.model.Entry;
@@ -16,6 +18,20 @@ public interface BlogClient {
 
 	Mono<BlogEntries> findAll(Pageable pageable);
 
+	/**
+	 * Recently confirmed update time of the latest entry, if the client tracks one.
+	 */
+	default Optional<Instant> latestUpdate() {
+		return Optional.empty();
+	}
+
+	/**
+	 * Whether the entry can currently be served without calling blog-api.
+	 */
+	default boolean isCached(Long entryId) {
+		return false;
+	}
+
 	default Flux<Entry> streamAll(Pageable pageable) {
 		return this.findAll(pageable).flatMapMany(x -> Flux.fromIterable(x.getContent()));
 	}
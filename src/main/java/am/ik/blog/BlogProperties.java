@@ -1,17 +1,36 @@
 package am.ik.blog;
 
+import java.net.URI;
 import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
 
 @ConfigurationProperties(prefix = "blog")
 public class BlogProperties {
 	private Service api;
 	private Service point;
+	private Rsocket rsocket = new Rsocket();
 	private Retry retry = new Retry();
+	private Renderer renderer = new Renderer();
+	private EntryCache entryCache = new EntryCache();
+	private ListingCache listingCache = new ListingCache();
+	private Warmup warmup = new Warmup();
+	private Prefetch prefetch = new Prefetch();
+	private Home home = new Home();
+	private StaticResources staticResources = new StaticResources();
+	private PageCache pageCache = new PageCache();
+	private HttpClient httpClient = new HttpClient();
+	private Hedge hedge = new Hedge();
+	private TimeLimit timeLimit = new TimeLimit();
+	private Concurrency concurrency = new Concurrency();
+	private LoadShedding loadShedding = new LoadShedding();
 	private boolean debugHttp = false;
 	private Duration connectTimeout = Duration.ofSeconds(1);
 	private Duration circuitBreakerTimeout = Duration.ofSeconds(6);
+	private boolean fusedResilience = false;
 
 	public Service getApi() {
 		return api;
@@ -29,6 +48,14 @@ public class BlogProperties {
 		this.point = point;
 	}
 
+	public Rsocket getRsocket() {
+		return rsocket;
+	}
+
+	public void setRsocket(Rsocket rsocket) {
+		this.rsocket = rsocket;
+	}
+
 	public Retry getRetry() {
 		return retry;
 	}
@@ -37,6 +64,110 @@ public class BlogProperties {
 		this.retry = retry;
 	}
 
+	public Renderer getRenderer() {
+		return renderer;
+	}
+
+	public void setRenderer(Renderer renderer) {
+		this.renderer = renderer;
+	}
+
+	public EntryCache getEntryCache() {
+		return entryCache;
+	}
+
+	public void setEntryCache(EntryCache entryCache) {
+		this.entryCache = entryCache;
+	}
+
+	public ListingCache getListingCache() {
+		return listingCache;
+	}
+
+	public void setListingCache(ListingCache listingCache) {
+		this.listingCache = listingCache;
+	}
+
+	public Warmup getWarmup() {
+		return warmup;
+	}
+
+	public void setWarmup(Warmup warmup) {
+		this.warmup = warmup;
+	}
+
+	public Prefetch getPrefetch() {
+		return prefetch;
+	}
+
+	public void setPrefetch(Prefetch prefetch) {
+		this.prefetch = prefetch;
+	}
+
+	public Home getHome() {
+		return home;
+	}
+
+	public void setHome(Home home) {
+		this.home = home;
+	}
+
+	public StaticResources getStaticResources() {
+		return staticResources;
+	}
+
+	public void setStaticResources(StaticResources staticResources) {
+		this.staticResources = staticResources;
+	}
+
+	public PageCache getPageCache() {
+		return pageCache;
+	}
+
+	public void setPageCache(PageCache pageCache) {
+		this.pageCache = pageCache;
+	}
+
+	public HttpClient getHttpClient() {
+		return httpClient;
+	}
+
+	public void setHttpClient(HttpClient httpClient) {
+		this.httpClient = httpClient;
+	}
+
+	public Hedge getHedge() {
+		return hedge;
+	}
+
+	public void setHedge(Hedge hedge) {
+		this.hedge = hedge;
+	}
+
+	public TimeLimit getTimeLimit() {
+		return timeLimit;
+	}
+
+	public void setTimeLimit(TimeLimit timeLimit) {
+		this.timeLimit = timeLimit;
+	}
+
+	public Concurrency getConcurrency() {
+		return concurrency;
+	}
+
+	public void setConcurrency(Concurrency concurrency) {
+		this.concurrency = concurrency;
+	}
+
+	public LoadShedding getLoadShedding() {
+		return loadShedding;
+	}
+
+	public void setLoadShedding(LoadShedding loadShedding) {
+		this.loadShedding = loadShedding;
+	}
+
 	public boolean isDebugHttp() {
 		return debugHttp;
 	}
@@ -61,16 +192,53 @@ public class BlogProperties {
 		this.circuitBreakerTimeout = circuitBreakerTimeout;
 	}
 
+	public boolean isFusedResilience() {
+		return fusedResilience;
+	}
+
+	public void setFusedResilience(boolean fusedResilience) {
+		this.fusedResilience = fusedResilience;
+	}
+
 	public static class Retry {
-		private Duration fixedBackoff = Duration.ofSeconds(1);
+		private Duration firstBackoff = Duration.ofMillis(200);
+		private Duration maxBackoff = Duration.ofSeconds(2);
+		private int factor = 2;
+		private double jitter = 0.5;
 		private int max = 3;
+		private double budgetRatio = 0.1;
+		private int maxBudget = 10;
+
+		public Duration getFirstBackoff() {
+			return firstBackoff;
+		}
+
+		public void setFirstBackoff(Duration firstBackoff) {
+			this.firstBackoff = firstBackoff;
+		}
+
+		public Duration getMaxBackoff() {
+			return maxBackoff;
+		}
+
+		public void setMaxBackoff(Duration maxBackoff) {
+			this.maxBackoff = maxBackoff;
+		}
+
+		public int getFactor() {
+			return factor;
+		}
 
-		public Duration getFixedBackoff() {
-			return fixedBackoff;
+		public void setFactor(int factor) {
+			this.factor = factor;
 		}
 
-		public void setFixedBackoff(Duration fixedBackoff) {
-			this.fixedBackoff = fixedBackoff;
+		public double getJitter() {
+			return jitter;
+		}
+
+		public void setJitter(double jitter) {
+			this.jitter = jitter;
 		}
 
 		public int getMax() {
@@ -80,10 +248,197 @@ public class BlogProperties {
 		public void setMax(int max) {
 			this.max = max;
 		}
+
+		public double getBudgetRatio() {
+			return budgetRatio;
+		}
+
+		public void setBudgetRatio(double budgetRatio) {
+			this.budgetRatio = budgetRatio;
+		}
+
+		public int getMaxBudget() {
+			return maxBudget;
+		}
+
+		public void setMaxBudget(int maxBudget) {
+			this.maxBudget = maxBudget;
+		}
+	}
+
+	public static class Renderer {
+		private DataSize cacheMaxWeight = DataSize.ofMegabytes(8);
+		private Duration cacheExpireAfterAccess = Duration.ofDays(1);
+
+		public DataSize getCacheMaxWeight() {
+			return cacheMaxWeight;
+		}
+
+		public void setCacheMaxWeight(DataSize cacheMaxWeight) {
+			this.cacheMaxWeight = cacheMaxWeight;
+		}
+
+		public Duration getCacheExpireAfterAccess() {
+			return cacheExpireAfterAccess;
+		}
+
+		public void setCacheExpireAfterAccess(Duration cacheExpireAfterAccess) {
+			this.cacheExpireAfterAccess = cacheExpireAfterAccess;
+		}
+	}
+
+	public static class EntryCache {
+		private DataSize maximumWeight = DataSize.ofMegabytes(16);
+		private Duration expireAfterWrite = Duration.ofDays(3);
+		private boolean staleWhileRevalidate = false;
+		private Duration revalidateInterval = Duration.ofMinutes(1);
+		private Duration maxStale = Duration.ofHours(1);
+		private Disk disk = new Disk();
+
+		public DataSize getMaximumWeight() {
+			return maximumWeight;
+		}
+
+		public void setMaximumWeight(DataSize maximumWeight) {
+			this.maximumWeight = maximumWeight;
+		}
+
+		public Duration getExpireAfterWrite() {
+			return expireAfterWrite;
+		}
+
+		public void setExpireAfterWrite(Duration expireAfterWrite) {
+			this.expireAfterWrite = expireAfterWrite;
+		}
+
+		public boolean isStaleWhileRevalidate() {
+			return staleWhileRevalidate;
+		}
+
+		public void setStaleWhileRevalidate(boolean staleWhileRevalidate) {
+			this.staleWhileRevalidate = staleWhileRevalidate;
+		}
+
+		public Duration getRevalidateInterval() {
+			return revalidateInterval;
+		}
+
+		public void setRevalidateInterval(Duration revalidateInterval) {
+			this.revalidateInterval = revalidateInterval;
+		}
+
+		public Duration getMaxStale() {
+			return maxStale;
+		}
+
+		public void setMaxStale(Duration maxStale) {
+			this.maxStale = maxStale;
+		}
+
+		public Disk getDisk() {
+			return disk;
+		}
+
+		public void setDisk(Disk disk) {
+			this.disk = disk;
+		}
+
+		public static class Disk {
+			private boolean enabled = false;
+			private String path = System.getProperty("java.io.tmpdir")
+					+ "/blog-ui/entries.seg";
+			private DataSize capacity = DataSize.ofMegabytes(32);
+
+			public boolean isEnabled() {
+				return enabled;
+			}
+
+			public void setEnabled(boolean enabled) {
+				this.enabled = enabled;
+			}
+
+			public String getPath() {
+				return path;
+			}
+
+			public void setPath(String path) {
+				this.path = path;
+			}
+
+			public DataSize getCapacity() {
+				return capacity;
+			}
+
+			public void setCapacity(DataSize capacity) {
+				this.capacity = capacity;
+			}
+		}
+	}
+
+	public static class ListingCache {
+		private boolean enabled = true;
+		private long maximumSize = 200;
+		private Duration ttl = Duration.ofMinutes(10);
+		private Duration refreshAfter = Duration.ofMinutes(1);
+		private Duration validatorTtl = Duration.ofDays(1);
+		private Duration maxStale = Duration.ofDays(1);
+
+		public boolean isEnabled() {
+			return enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public long getMaximumSize() {
+			return maximumSize;
+		}
+
+		public void setMaximumSize(long maximumSize) {
+			this.maximumSize = maximumSize;
+		}
+
+		public Duration getTtl() {
+			return ttl;
+		}
+
+		public void setTtl(Duration ttl) {
+			this.ttl = ttl;
+		}
+
+		public Duration getRefreshAfter() {
+			return refreshAfter;
+		}
+
+		public void setRefreshAfter(Duration refreshAfter) {
+			this.refreshAfter = refreshAfter;
+		}
+
+		public Duration getValidatorTtl() {
+			return validatorTtl;
+		}
+
+		public void setValidatorTtl(Duration validatorTtl) {
+			this.validatorTtl = validatorTtl;
+		}
+
+		public Duration getMaxStale() {
+			return maxStale;
+		}
+
+		public void setMaxStale(Duration maxStale) {
+			this.maxStale = maxStale;
+		}
+	}
+
+	public enum Codec {
+		JSON, SMILE
 	}
 
 	public static class Service {
 		private String url;
+		private Codec codec = Codec.JSON;
 
 		public String getUrl() {
 			return url;
@@ -92,5 +447,544 @@ public class BlogProperties {
 		public void setUrl(String url) {
 			this.url = url;
 		}
+
+		public Codec getCodec() {
+			return codec;
+		}
+
+		public void setCodec(Codec codec) {
+			this.codec = codec;
+		}
+	}
+
+	public static class Rsocket {
+		private URI uri = URI.create("tcp://localhost:7000");
+		private Codec codec = Codec.JSON;
+
+		public URI getUri() {
+			return uri;
+		}
+
+		public void setUri(URI uri) {
+			this.uri = uri;
+		}
+
+		public Codec getCodec() {
+			return codec;
+		}
+
+		public void setCodec(Codec codec) {
+			this.codec = codec;
+		}
+	}
+
+	public static class Warmup {
+		private boolean enabled = false;
+		private int listingPages = 3;
+		private int pageSize = 50;
+		private int entries = 30;
+		private int concurrency = 4;
+		private Duration deadline = Duration.ofSeconds(60);
+
+		public boolean isEnabled() {
+			return enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public int getListingPages() {
+			return listingPages;
+		}
+
+		public void setListingPages(int listingPages) {
+			this.listingPages = listingPages;
+		}
+
+		public int getPageSize() {
+			return pageSize;
+		}
+
+		public void setPageSize(int pageSize) {
+			this.pageSize = pageSize;
+		}
+
+		public int getEntries() {
+			return entries;
+		}
+
+		public void setEntries(int entries) {
+			this.entries = entries;
+		}
+
+		public int getConcurrency() {
+			return concurrency;
+		}
+
+		public void setConcurrency(int concurrency) {
+			this.concurrency = concurrency;
+		}
+
+		public Duration getDeadline() {
+			return deadline;
+		}
+
+		public void setDeadline(Duration deadline) {
+			this.deadline = deadline;
+		}
+	}
+
+	public static class Prefetch {
+		private boolean enabled = true;
+		private int permitsPerSecond = 10;
+		private int burst = 20;
+
+		public boolean isEnabled() {
+			return enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public int getPermitsPerSecond() {
+			return permitsPerSecond;
+		}
+
+		public void setPermitsPerSecond(int permitsPerSecond) {
+			this.permitsPerSecond = permitsPerSecond;
+		}
+
+		public int getBurst() {
+			return burst;
+		}
+
+		public void setBurst(int burst) {
+			this.burst = burst;
+		}
+	}
+
+	public static class Home {
+		private boolean streaming = false;
+		private int streamBufferSize = 10;
+		private Duration latestUpdateMaxAge = Duration.ofSeconds(30);
+
+		public boolean isStreaming() {
+			return streaming;
+		}
+
+		public void setStreaming(boolean streaming) {
+			this.streaming = streaming;
+		}
+
+		public int getStreamBufferSize() {
+			return streamBufferSize;
+		}
+
+		public void setStreamBufferSize(int streamBufferSize) {
+			this.streamBufferSize = streamBufferSize;
+		}
+
+		public Duration getLatestUpdateMaxAge() {
+			return latestUpdateMaxAge;
+		}
+
+		public void setLatestUpdateMaxAge(Duration latestUpdateMaxAge) {
+			this.latestUpdateMaxAge = latestUpdateMaxAge;
+		}
+	}
+
+	public static class StaticResources {
+		private boolean enabled = true;
+		private String location = "classpath:/public/";
+		private Duration maxAge = Duration.ofDays(1);
+
+		public boolean isEnabled() {
+			return enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public String getLocation() {
+			return location;
+		}
+
+		public void setLocation(String location) {
+			this.location = location;
+		}
+
+		public Duration getMaxAge() {
+			return maxAge;
+		}
+
+		public void setMaxAge(Duration maxAge) {
+			this.maxAge = maxAge;
+		}
+	}
+
+	public static class PageCache {
+		private boolean enabled = true;
+		private DataSize maximumWeight = DataSize.ofMegabytes(16);
+
+		public boolean isEnabled() {
+			return enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public DataSize getMaximumWeight() {
+			return maximumWeight;
+		}
+
+		public void setMaximumWeight(DataSize maximumWeight) {
+			this.maximumWeight = maximumWeight;
+		}
+	}
+
+	public static class HttpClient {
+		private int maxConnections = 100;
+		private Duration acquireTimeout = Duration.ofSeconds(2);
+		private int pendingAcquireMaxCount = 200;
+		private Duration maxIdleTime = Duration.ofSeconds(30);
+		private Duration maxLifeTime = Duration.ofMinutes(10);
+		private Protocol protocol = Protocol.HTTP11;
+
+		public int getMaxConnections() {
+			return maxConnections;
+		}
+
+		public void setMaxConnections(int maxConnections) {
+			this.maxConnections = maxConnections;
+		}
+
+		public Duration getAcquireTimeout() {
+			return acquireTimeout;
+		}
+
+		public void setAcquireTimeout(Duration acquireTimeout) {
+			this.acquireTimeout = acquireTimeout;
+		}
+
+		public int getPendingAcquireMaxCount() {
+			return pendingAcquireMaxCount;
+		}
+
+		public void setPendingAcquireMaxCount(int pendingAcquireMaxCount) {
+			this.pendingAcquireMaxCount = pendingAcquireMaxCount;
+		}
+
+		public Duration getMaxIdleTime() {
+			return maxIdleTime;
+		}
+
+		public void setMaxIdleTime(Duration maxIdleTime) {
+			this.maxIdleTime = maxIdleTime;
+		}
+
+		public Duration getMaxLifeTime() {
+			return maxLifeTime;
+		}
+
+		public void setMaxLifeTime(Duration maxLifeTime) {
+			this.maxLifeTime = maxLifeTime;
+		}
+
+		public Protocol getProtocol() {
+			return protocol;
+		}
+
+		public void setProtocol(Protocol protocol) {
+			this.protocol = protocol;
+		}
+
+		public enum Protocol {
+			HTTP11, H2C
+		}
+	}
+
+	public static class Hedge {
+		private boolean enabled = false;
+		private Duration delay = Duration.ofMillis(500);
+		private Duration minDelay = Duration.ofMillis(50);
+		private double percentile = 0.95;
+		private long minSamples = 100;
+		private double budgetRatio = 0.1;
+		private int maxBudget = 10;
+
+		public boolean isEnabled() {
+			return enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public Duration getDelay() {
+			return delay;
+		}
+
+		public void setDelay(Duration delay) {
+			this.delay = delay;
+		}
+
+		public Duration getMinDelay() {
+			return minDelay;
+		}
+
+		public void setMinDelay(Duration minDelay) {
+			this.minDelay = minDelay;
+		}
+
+		public double getPercentile() {
+			return percentile;
+		}
+
+		public void setPercentile(double percentile) {
+			this.percentile = percentile;
+		}
+
+		public long getMinSamples() {
+			return minSamples;
+		}
+
+		public void setMinSamples(long minSamples) {
+			this.minSamples = minSamples;
+		}
+
+		public double getBudgetRatio() {
+			return budgetRatio;
+		}
+
+		public void setBudgetRatio(double budgetRatio) {
+			this.budgetRatio = budgetRatio;
+		}
+
+		public int getMaxBudget() {
+			return maxBudget;
+		}
+
+		public void setMaxBudget(int maxBudget) {
+			this.maxBudget = maxBudget;
+		}
+	}
+
+	public static class TimeLimit {
+		/**
+		 * Timeouts keyed by operation name, e.g.
+		 * {@code blog.time-limit.operations[blog-ui.findTags]=500ms}. Operations not
+		 * listed use {@code blog.circuit-breaker-timeout}.
+		 */
+		private Map<String, Duration> operations = new LinkedHashMap<>();
+		private Adaptive adaptive = new Adaptive();
+
+		public Map<String, Duration> getOperations() {
+			return operations;
+		}
+
+		public void setOperations(Map<String, Duration> operations) {
+			this.operations = operations;
+		}
+
+		public Adaptive getAdaptive() {
+			return adaptive;
+		}
+
+		public void setAdaptive(Adaptive adaptive) {
+			this.adaptive = adaptive;
+		}
+
+		public static class Adaptive {
+			private boolean enabled = false;
+			private double percentile = 0.99;
+			private double multiplier = 2.0;
+			private Duration floor = Duration.ofMillis(100);
+			private Duration ceiling = Duration.ofSeconds(6);
+			private long minSamples = 100;
+
+			public boolean isEnabled() {
+				return enabled;
+			}
+
+			public void setEnabled(boolean enabled) {
+				this.enabled = enabled;
+			}
+
+			public double getPercentile() {
+				return percentile;
+			}
+
+			public void setPercentile(double percentile) {
+				this.percentile = percentile;
+			}
+
+			public double getMultiplier() {
+				return multiplier;
+			}
+
+			public void setMultiplier(double multiplier) {
+				this.multiplier = multiplier;
+			}
+
+			public Duration getFloor() {
+				return floor;
+			}
+
+			public void setFloor(Duration floor) {
+				this.floor = floor;
+			}
+
+			public Duration getCeiling() {
+				return ceiling;
+			}
+
+			public void setCeiling(Duration ceiling) {
+				this.ceiling = ceiling;
+			}
+
+			public long getMinSamples() {
+				return minSamples;
+			}
+
+			public void setMinSamples(long minSamples) {
+				this.minSamples = minSamples;
+			}
+		}
+	}
+
+	public static class Concurrency {
+		private boolean enabled = true;
+		private int initialLimit = 20;
+		private int minLimit = 4;
+		private int maxLimit = 200;
+		private double smoothing = 0.2;
+		private double tolerance = 1.5;
+		private int longWindow = 100;
+		private int maxQueueSize = 50;
+		private Duration maxQueueWait = Duration.ofMillis(50);
+
+		public boolean isEnabled() {
+			return enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public int getInitialLimit() {
+			return initialLimit;
+		}
+
+		public void setInitialLimit(int initialLimit) {
+			this.initialLimit = initialLimit;
+		}
+
+		public int getMinLimit() {
+			return minLimit;
+		}
+
+		public void setMinLimit(int minLimit) {
+			this.minLimit = minLimit;
+		}
+
+		public int getMaxLimit() {
+			return maxLimit;
+		}
+
+		public void setMaxLimit(int maxLimit) {
+			this.maxLimit = maxLimit;
+		}
+
+		public double getSmoothing() {
+			return smoothing;
+		}
+
+		public void setSmoothing(double smoothing) {
+			this.smoothing = smoothing;
+		}
+
+		public double getTolerance() {
+			return tolerance;
+		}
+
+		public void setTolerance(double tolerance) {
+			this.tolerance = tolerance;
+		}
+
+		public int getLongWindow() {
+			return longWindow;
+		}
+
+		public void setLongWindow(int longWindow) {
+			this.longWindow = longWindow;
+		}
+
+		public int getMaxQueueSize() {
+			return maxQueueSize;
+		}
+
+		public void setMaxQueueSize(int maxQueueSize) {
+			this.maxQueueSize = maxQueueSize;
+		}
+
+		public Duration getMaxQueueWait() {
+			return maxQueueWait;
+		}
+
+		public void setMaxQueueWait(Duration maxQueueWait) {
+			this.maxQueueWait = maxQueueWait;
+		}
+	}
+
+	public static class LoadShedding {
+		private boolean enabled = true;
+		private int maxInFlight = 500;
+		private Duration maxEventLoopLag = Duration.ofMillis(200);
+		private Duration probeInterval = Duration.ofMillis(100);
+		private Duration retryAfter = Duration.ofSeconds(1);
+
+		public boolean isEnabled() {
+			return enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public int getMaxInFlight() {
+			return maxInFlight;
+		}
+
+		public void setMaxInFlight(int maxInFlight) {
+			this.maxInFlight = maxInFlight;
+		}
+
+		public Duration getMaxEventLoopLag() {
+			return maxEventLoopLag;
+		}
+
+		public void setMaxEventLoopLag(Duration maxEventLoopLag) {
+			this.maxEventLoopLag = maxEventLoopLag;
+		}
+
+		public Duration getProbeInterval() {
+			return probeInterval;
+		}
+
+		public void setProbeInterval(Duration probeInterval) {
+			this.probeInterval = probeInterval;
+		}
+
+		public Duration getRetryAfter() {
+			return retryAfter;
+		}
+
+		public void setRetryAfter(Duration retryAfter) {
+			this.retryAfter = retryAfter;
+		}
 	}
 }
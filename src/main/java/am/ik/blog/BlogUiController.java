@@ -1,11 +1,16 @@
 package am.ik.blog;
 
+import java.time.Instant;
 import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 
 import am.ik.blog.model.Category;
 import am.ik.blog.model.Entry;
 import am.ik.blog.model.Tag;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.thymeleaf.spring5.context.webflux.ReactiveDataDriverContextVariable;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
@@ -24,17 +29,44 @@ import static org.springframework.http.HttpHeaders.CACHE_CONTROL;
 
 @Controller
 public class BlogUiController {
+	/**
+	 * Exchange attribute holding an already started {@code findById} for the entry
+	 * page, so a filter that needed the entry first does not make us fetch it twice.
+	 */
+	public static final String ENTRY_ATTRIBUTE = BlogUiController.class.getName()
+			+ ".entry";
 	private final BlogClient blogClient;
+	private final BlogProperties.Home home;
+	private final Counter notModifiedWithoutUpstream;
 
-	public BlogUiController(BlogClient blogClient) {
+	public BlogUiController(BlogClient blogClient, BlogProperties props,
+			MeterRegistry meterRegistry) {
 		this.blogClient = blogClient;
+		this.home = props.getHome();
+		this.notModifiedWithoutUpstream = Counter.builder("blog.home.not_modified") //
+				.description("Number of 304s on the home page served without calling blog-api") //
+				.register(meterRegistry);
 	}
 
 	@RequestMapping(path = { "/", "/entries" }, method = { RequestMethod.GET,
 			RequestMethod.HEAD })
 	public Mono<Rendering> home(@PageableDefault(size = 50) Pageable pageable,
 			ServerWebExchange exchange) {
+		if (pageable.getPageNumber() == 0
+				&& exchange.getRequest().getHeaders().getIfModifiedSince() != -1) {
+			Optional<Instant> latestUpdate = this.blogClient.latestUpdate();
+			if (latestUpdate.isPresent()
+					&& exchange.checkNotModified(latestUpdate.get())) {
+				this.notModifiedWithoutUpstream.increment();
+				return Mono.just(Rendering.view("index") //
+						.header(CACHE_CONTROL, "max-age=" + TimeUnit.HOURS.toSeconds(3)) //
+						.build());
+			}
+		}
 		Flux<Entry> entries = this.blogClient.streamAll(pageable).cache();
+		if (this.home.isStreaming()) {
+			return this.streamHome(entries, exchange);
+		}
 		Rendering.Builder<?> builder = Rendering.view("index") //
 				.modelAttribute("entries", entries);
 		return entries.count() //
@@ -50,6 +82,25 @@ public class BlogUiController {
 				.switchIfEmpty(Mono.fromCallable(builder::build));
 	}
 
+	/**
+	 * Only waits for the first (latest) entry to decide Last-Modified, then lets
+	 * Thymeleaf flush the list as the rest of the stream arrives.
+	 */
+	Mono<Rendering> streamHome(Flux<Entry> entries, ServerWebExchange exchange) {
+		Rendering.Builder<?> builder = Rendering.view("index") //
+				.modelAttribute("entries", new ReactiveDataDriverContextVariable(
+						entries, this.home.getStreamBufferSize()));
+		return entries.next() //
+				.map(e -> {
+					exchange.checkNotModified(e.getUpdated().getDate().toInstant());
+					return builder //
+							.header(CACHE_CONTROL,
+									"max-age=" + TimeUnit.HOURS.toSeconds(3)) //
+							.build();
+				}) //
+				.switchIfEmpty(Mono.fromCallable(builder::build));
+	}
+
 	@GetMapping(path = { "/", "/entries" }, params = "q")
 	public Rendering search(@RequestParam("q") String query,
 			@PageableDefault(size = 50) Pageable pageable) {
@@ -84,7 +135,9 @@ public class BlogUiController {
 			RequestMethod.HEAD })
 	public Mono<Rendering> byId(@PathVariable("entryId") Long entryId,
 			ServerWebExchange exchange) {
-		Mono<Entry> entry = this.blogClient.findById(entryId).cache();
+		Mono<Entry> started = exchange.getAttribute(ENTRY_ATTRIBUTE);
+		Mono<Entry> entry = started != null ? started
+				: this.blogClient.findById(entryId).cache();
 		return entry.map(e -> {
 			exchange.checkNotModified(e.getUpdated().getDate().toInstant());
 			return Rendering.view("entry") //
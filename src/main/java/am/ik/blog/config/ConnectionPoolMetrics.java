@@ -0,0 +1,71 @@
+package am.ik.blog.config;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Connection counts of the blog-api client pool. The pool itself does not expose
+ * them, so they are tracked from connection and request callbacks; pending counts
+ * exchanges that started but have not been given a connection yet.
+ */
+class ConnectionPoolMetrics {
+	private final AtomicInteger connected = new AtomicInteger();
+	private final AtomicInteger active = new AtomicInteger();
+	private final AtomicInteger pending = new AtomicInteger();
+
+	ConnectionPoolMetrics(String name, MeterRegistry meterRegistry) {
+		Gauge.builder("blog.http-client.connections.active", this,
+				ConnectionPoolMetrics::active) //
+				.description("Connections with a request in flight") //
+				.tag("name", name) //
+				.register(meterRegistry);
+		Gauge.builder("blog.http-client.connections.idle", this,
+				ConnectionPoolMetrics::idle) //
+				.description("Open connections waiting in the pool") //
+				.tag("name", name) //
+				.register(meterRegistry);
+		Gauge.builder("blog.http-client.connections.pending", this,
+				ConnectionPoolMetrics::pending) //
+				.description("Exchanges waiting to acquire a connection") //
+				.tag("name", name) //
+				.register(meterRegistry);
+	}
+
+	void connected() {
+		this.connected.incrementAndGet();
+	}
+
+	void disconnected() {
+		this.connected.decrementAndGet();
+	}
+
+	void requestStarted() {
+		this.active.incrementAndGet();
+	}
+
+	void requestFinished() {
+		this.active.decrementAndGet();
+	}
+
+	void pendingStarted() {
+		this.pending.incrementAndGet();
+	}
+
+	void pendingFinished() {
+		this.pending.decrementAndGet();
+	}
+
+	double active() {
+		return Math.max(0, this.active.get());
+	}
+
+	double idle() {
+		return Math.max(0, this.connected.get() - this.active.get());
+	}
+
+	double pending() {
+		return Math.max(0, this.pending.get());
+	}
+}
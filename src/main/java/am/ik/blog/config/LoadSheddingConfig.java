@@ -0,0 +1,33 @@
+package am.ik.blog.config;
+
+import am.ik.blog.BlogClient;
+import am.ik.blog.BlogProperties;
+import am.ik.blog.shed.EventLoopLagProbe;
+import am.ik.blog.shed.LoadSheddingFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.netty.http.HttpResources;
+import reactor.netty.resources.LoopResources;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConditionalOnProperty(name = "blog.load-shedding.enabled", havingValue = "true", matchIfMissing = true)
+public class LoadSheddingConfig {
+	@Bean
+	public EventLoopLagProbe eventLoopLagProbe(BlogProperties props) {
+		// the embedded server runs on the global resources
+		return new EventLoopLagProbe(
+				HttpResources.get().onServer(LoopResources.DEFAULT_NATIVE),
+				props.getLoadShedding().getProbeInterval());
+	}
+
+	@Bean
+	public LoadSheddingFilter loadSheddingFilter(BlogClient blogClient,
+			BlogProperties props, EventLoopLagProbe eventLoopLagProbe,
+			MeterRegistry meterRegistry) {
+		return new LoadSheddingFilter(blogClient, props, eventLoopLagProbe,
+				meterRegistry);
+	}
+}
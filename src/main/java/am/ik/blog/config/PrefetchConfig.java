@@ -0,0 +1,22 @@
+package am.ik.blog.config;
+
+import am.ik.blog.BlogClient;
+import am.ik.blog.BlogProperties;
+import am.ik.blog.prefetch.PrefetchFilter;
+import am.ik.blog.renderer.EntryRenderer;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class PrefetchConfig {
+	@Bean
+	@ConditionalOnProperty(name = "blog.prefetch.enabled", havingValue = "true", matchIfMissing = true)
+	public PrefetchFilter prefetchFilter(BlogClient blogClient,
+			EntryRenderer entryRenderer, BlogProperties props,
+			MeterRegistry meterRegistry) {
+		return new PrefetchFilter(blogClient, entryRenderer, props, meterRegistry);
+	}
+}
@@ -1,23 +1,165 @@
 package am.ik.blog.config;
 
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
 import am.ik.blog.BlogProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.timeout.IdleStateEvent;
+import io.netty.handler.timeout.IdleStateHandler;
+import io.netty.util.AttributeKey;
+import reactor.core.publisher.Mono;
+import reactor.netty.Connection;
+import reactor.netty.http.HttpProtocol;
 import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.client.reactive.ClientHttpConnector;
+import org.springframework.http.client.reactive.ClientHttpRequest;
+import org.springframework.http.client.reactive.ClientHttpResponse;
 import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 
 import static io.netty.channel.ChannelOption.CONNECT_TIMEOUT_MILLIS;
 
 @Configuration
 public class ReactorHttpConfig {
+	private static final AttributeKey<Long> CONNECTED_AT = AttributeKey
+			.valueOf("blog.connectedAt");
+	private static final AttributeKey<Boolean> IN_FLIGHT = AttributeKey
+			.valueOf("blog.inFlight");
+
 	@Bean
-	public ClientHttpConnector clientHttpConnector(BlogProperties props) {
-		HttpClient httpClient = HttpClient.create() //
+	public ClientHttpConnector clientHttpConnector(BlogProperties props,
+			MeterRegistry meterRegistry) {
+		BlogProperties.HttpClient pool = props.getHttpClient();
+		ConnectionPoolMetrics metrics = new ConnectionPoolMetrics("blog-api",
+				meterRegistry);
+		ConnectionProvider connectionProvider = ConnectionProvider.fixed("blog-api",
+				pool.getMaxConnections(), pool.getAcquireTimeout().toMillis());
+		HttpClient httpClient = HttpClient.create(connectionProvider) //
 				.wiretap(props.isDebugHttp()) //
-				.tcpConfiguration(tcpClient -> tcpClient.option(CONNECT_TIMEOUT_MILLIS,
-						(int) props.getConnectTimeout().toMillis()));
-		return new ReactorClientHttpConnector(httpClient);
+				.protocol(pool.getProtocol() == BlogProperties.HttpClient.Protocol.H2C
+						? new HttpProtocol[] { HttpProtocol.H2C, HttpProtocol.HTTP11 }
+						: new HttpProtocol[] { HttpProtocol.HTTP11 }) //
+				.tcpConfiguration(tcpClient -> tcpClient //
+						.option(CONNECT_TIMEOUT_MILLIS,
+								(int) props.getConnectTimeout().toMillis()) //
+						.doOnConnected(connection -> onConnected(connection, pool,
+								metrics)) //
+						.doOnDisconnected(connection -> metrics.disconnected())) //
+				.doOnRequest((request, connection) -> requestStarted(connection,
+						metrics)) //
+				.doOnRequestError((request, e) -> requestFinished(request, metrics)) //
+				.doOnResponseError((response, e) -> requestFinished(response, metrics)) //
+				.doAfterResponse((response, connection) -> {
+					requestFinished(connection, metrics);
+					retireIfTooOld(connection, pool);
+				});
+		return new PendingLimitedConnector(new ReactorClientHttpConnector(httpClient),
+				pool.getPendingAcquireMaxCount(), metrics);
+	}
+
+	/**
+	 * The pool only knows a fixed size and acquire timeout, so idle eviction is done
+	 * by closing connections that saw no traffic for {@code max-idle-time}.
+	 */
+	static void onConnected(Connection connection, BlogProperties.HttpClient pool,
+			ConnectionPoolMetrics metrics) {
+		if (connection.channel().hasAttr(CONNECTED_AT)) {
+			return;
+		}
+		connection.channel().attr(CONNECTED_AT).set(System.nanoTime());
+		metrics.connected();
+		connection.channel().pipeline().addFirst("blog.idleEviction",
+				new IdleStateHandler(0, 0, pool.getMaxIdleTime().toMillis(),
+						TimeUnit.MILLISECONDS)) //
+				.addAfter("blog.idleEviction", "blog.idleEvictionClose",
+						new ChannelInboundHandlerAdapter() {
+							@Override
+							public void userEventTriggered(ChannelHandlerContext ctx,
+									Object evt) throws Exception {
+								if (evt instanceof IdleStateEvent) {
+									ctx.close();
+									return;
+								}
+								super.userEventTriggered(ctx, evt);
+							}
+						});
+	}
+
+	static void requestStarted(Connection connection, ConnectionPoolMetrics metrics) {
+		if (!Boolean.TRUE
+				.equals(connection.channel().attr(IN_FLIGHT).getAndSet(true))) {
+			metrics.requestStarted();
+		}
+	}
+
+	/**
+	 * Request and response errors also fire when no connection was ever acquired, or
+	 * after the response already finished, so only a connection that was counted as
+	 * in flight is released, and only once.
+	 */
+	static void requestFinished(Object exchange, ConnectionPoolMetrics metrics) {
+		if (exchange instanceof Connection && Boolean.TRUE.equals(((Connection) exchange)
+				.channel().attr(IN_FLIGHT).getAndSet(false))) {
+			metrics.requestFinished();
+		}
+	}
+
+	static void retireIfTooOld(Connection connection, BlogProperties.HttpClient pool) {
+		Long connectedAt = connection.channel().attr(CONNECTED_AT).get();
+		if (connectedAt != null && System.nanoTime() - connectedAt > pool
+				.getMaxLifeTime().toNanos()) {
+			connection.channel().close();
+		}
+	}
+
+	/**
+	 * Fails fast once too many exchanges are already queued for a connection, instead
+	 * of letting them pile up until the acquire timeout.
+	 */
+	static class PendingLimitedConnector implements ClientHttpConnector {
+		private final ClientHttpConnector delegate;
+		private final int maxPending;
+		private final ConnectionPoolMetrics metrics;
+
+		PendingLimitedConnector(ClientHttpConnector delegate, int maxPending,
+				ConnectionPoolMetrics metrics) {
+			this.delegate = delegate;
+			this.maxPending = maxPending;
+			this.metrics = metrics;
+		}
+
+		@Override
+		public Mono<ClientHttpResponse> connect(HttpMethod method, URI uri,
+				Function<? super ClientHttpRequest, Mono<Void>> requestCallback) {
+			return Mono.defer(() -> {
+				if (this.metrics.pending() >= this.maxPending) {
+					return Mono.error(new IllegalStateException(
+							"Too many pending connection acquisitions (max="
+									+ this.maxPending + ")"));
+				}
+				// pending until the request is written on an acquired connection, or
+				// the exchange terminates first (connect refused, acquire timeout)
+				AtomicBoolean pending = new AtomicBoolean(true);
+				Runnable acquired = () -> {
+					if (pending.compareAndSet(true, false)) {
+						this.metrics.pendingFinished();
+					}
+				};
+				this.metrics.pendingStarted();
+				return this.delegate.connect(method, uri, request -> {
+					acquired.run();
+					return requestCallback.apply(request);
+				}).doFinally(signal -> acquired.run());
+			});
+		}
 	}
 }
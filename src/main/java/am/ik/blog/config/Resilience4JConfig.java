@@ -5,6 +5,8 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
 import am.ik.blog.BlogProperties;
+import am.ik.blog.http.FusedResilience;
+import am.ik.blog.http.OperationTimeouts;
 import am.ik.blog.http.Retryer;
 import io.github.resilience4j.circuitbreaker.CircuitBreaker;
 import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
@@ -26,39 +28,60 @@ import org.springframework.context.annotation.Configuration;
 @Configuration
 public class Resilience4JConfig {
 	private final Logger log = LoggerFactory.getLogger(Resilience4JConfig.class);
+	private final ConcurrentMap<String, Boolean> registered = new ConcurrentHashMap<>();
 
 	@Bean
 	public ReactiveResilience4JCircuitBreakerFactory reactiveResilience4JCircuitBreakerFactory() {
 		return new ReactiveResilience4JCircuitBreakerFactory();
 	}
 
+	@Bean
+	public OperationTimeouts operationTimeouts(BlogProperties props,
+			MeterRegistry registry) {
+		return new OperationTimeouts(props, registry);
+	}
+
+	@Bean
+	public FusedResilience fusedResilience(BlogProperties props,
+			MeterRegistry registry) {
+		return new FusedResilience(props, circuitBreakerConfig(), circuitBreaker -> {
+			this.configureMetrics(registry, circuitBreaker, this.registered);
+			this.configureEventPublisher(circuitBreaker.getEventPublisher());
+		});
+	}
+
 	@Bean
 	public Customizer<ReactiveResilience4JCircuitBreakerFactory> resilience4jCustomizer(
-			MeterRegistry registry, BlogProperties props) {
-		ConcurrentMap<String, Boolean> registered = new ConcurrentHashMap<>();
+			MeterRegistry registry, OperationTimeouts timeouts) {
 		return factory -> {
 			factory.addCircuitBreakerCustomizer(circuitBreaker -> {
-				this.configureMetrics(registry, circuitBreaker, registered);
+				this.configureMetrics(registry, circuitBreaker, this.registered);
 				this.configureEventPublisher(circuitBreaker.getEventPublisher());
 			}, "blog-ui.findById", "blog-ui.findAll", "blog-ui.streamAll",
 					"blog-ui.findByQuery", "blog-ui.findByCategories",
-					"blog-ui.findByTag", "blog-ui.findTags", "blog-ui.findCategories");
+					"blog-ui.findByTag", "blog-ui.findTags", "blog-ui.findCategories",
+					"blog-ui.streamByTag", "blog-ui.streamByCategories",
+					"blog-ui.latestUpdate");
 			factory.configureDefault(
 					id -> new Resilience4JConfigBuilder(id)
 							.timeLimiterConfig(TimeLimiterConfig.custom() //
-									.timeoutDuration(props.getCircuitBreakerTimeout()) //
-									.build())
-							.circuitBreakerConfig(CircuitBreakerConfig.custom() //
-									.waitDurationInOpenState(Duration.ofSeconds(10)) //
-									.failureRateThreshold(40) //
-									.ringBufferSizeInClosedState(20) //
-									.ringBufferSizeInHalfOpenState(5) //
-									.recordFailure(Retryer.retryable) //
+									.timeoutDuration(timeouts.overallLimit(id)) //
 									.build())
+							.circuitBreakerConfig(circuitBreakerConfig()) //
 							.build());
 		};
 	}
 
+	static CircuitBreakerConfig circuitBreakerConfig() {
+		return CircuitBreakerConfig.custom() //
+				.waitDurationInOpenState(Duration.ofSeconds(10)) //
+				.failureRateThreshold(40) //
+				.ringBufferSizeInClosedState(20) //
+				.ringBufferSizeInHalfOpenState(5) //
+				.recordFailure(Retryer.retryable) //
+				.build();
+	}
+
 	private void configureMetrics(MeterRegistry registry, CircuitBreaker circuitBreaker,
 			ConcurrentMap<String, Boolean> registered) {
 		TaggedCircuitBreakerMetrics.MetricNames names = TaggedCircuitBreakerMetrics.MetricNames
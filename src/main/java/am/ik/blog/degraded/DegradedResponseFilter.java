@@ -0,0 +1,50 @@
+package am.ik.blog.degraded;
+
+import am.ik.blog.http.Degraded;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Mono;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.HandlerMapping;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+
+import static org.springframework.http.HttpHeaders.CACHE_CONTROL;
+import static org.springframework.http.HttpHeaders.WARNING;
+
+/**
+ * Flags responses built from last known good listings with
+ * {@code Warning: 110 - "Response is Stale"} and keeps shared caches from storing
+ * them.
+ */
+@Component
+public class DegradedResponseFilter implements WebFilter {
+	static final String STALE_WARNING = "110 - \"Response is Stale\"";
+	private final MeterRegistry meterRegistry;
+
+	public DegradedResponseFilter(MeterRegistry meterRegistry) {
+		this.meterRegistry = meterRegistry;
+	}
+
+	@Override
+	public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+		Degraded degraded = new Degraded();
+		exchange.getResponse().beforeCommit(() -> {
+			if (degraded.isDegraded()) {
+				HttpHeaders headers = exchange.getResponse().getHeaders();
+				headers.set(WARNING, STALE_WARNING);
+				headers.set(CACHE_CONTROL, "no-cache");
+				String uri = exchange.getAttributeOrDefault(
+						HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "UNKNOWN")
+						.toString();
+				this.meterRegistry.counter("blog.degraded.responses", "uri", uri)
+						.increment();
+			}
+			return Mono.empty();
+		});
+		return chain.filter(exchange)
+				.subscriberContext(context -> Degraded.put(context, degraded));
+	}
+}
@@ -0,0 +1,164 @@
+package am.ik.blog.etag;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import static org.springframework.http.HttpHeaders.ACCEPT_LANGUAGE;
+import static org.springframework.http.HttpHeaders.CONTENT_LENGTH;
+import static org.springframework.http.HttpHeaders.VARY;
+
+/**
+ * Adds a strong ETag, hashed from the rendered body, to the listing pages that have
+ * no natural Last-Modified, and answers a matching {@code If-None-Match} with
+ * {@code 304}. The body differs per locale, so responses also vary on
+ * {@code Accept-Language}.
+ */
+@Component
+public class ResponseETagFilter implements WebFilter {
+	private static final PathPatternParser parser = new PathPatternParser();
+	private static final List<PathPattern> routes = Arrays.asList(
+			parser.parse("/tags"), //
+			parser.parse("/categories"), //
+			parser.parse("/tags/{tag}/entries"), //
+			parser.parse("/categories/{categories}/entries"));
+	private static final List<PathPattern> searchRoutes = Arrays.asList(
+			parser.parse("/"), //
+			parser.parse("/entries"));
+	private final MeterRegistry meterRegistry;
+
+	public ResponseETagFilter(MeterRegistry meterRegistry) {
+		this.meterRegistry = meterRegistry;
+	}
+
+	@Override
+	public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+		ServerHttpRequest request = exchange.getRequest();
+		Optional<String> route = request.getMethod() == HttpMethod.GET
+				? route(request)
+				: Optional.empty();
+		if (!route.isPresent()) {
+			return chain.filter(exchange);
+		}
+		ServerHttpResponse response = new ETagResponse(exchange, route.get());
+		response.getHeaders().add(VARY, ACCEPT_LANGUAGE);
+		return chain.filter(exchange.mutate().response(response).build());
+	}
+
+	static Optional<String> route(ServerHttpRequest request) {
+		PathContainer path = request.getPath().pathWithinApplication();
+		if (request.getQueryParams().containsKey("q")) {
+			return searchRoutes.stream().filter(p -> p.matches(path)).findFirst()
+					.map(p -> p.getPatternString() + "?q");
+		}
+		return routes.stream().filter(p -> p.matches(path)).findFirst()
+				.map(PathPattern::getPatternString);
+	}
+
+	static String etag(DataBuffer buffer) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("MD5");
+			ByteBuffer byteBuffer = buffer.asByteBuffer();
+			digest.update(byteBuffer);
+			StringBuilder etag = new StringBuilder("\"0");
+			for (byte b : digest.digest()) {
+				etag.append(Character.forDigit((b >> 4) & 0xF, 16))
+						.append(Character.forDigit(b & 0xF, 16));
+			}
+			return etag.append('"').toString();
+		}
+		catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	static boolean matches(List<String> ifNoneMatch, String etag) {
+		for (String candidate : ifNoneMatch) {
+			for (String tag : StringUtils.commaDelimitedListToStringArray(candidate)) {
+				String trimmed = tag.trim();
+				if (trimmed.startsWith("W/")) {
+					trimmed = trimmed.substring(2);
+				}
+				if (trimmed.equals(etag) || trimmed.equals("*")) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	class ETagResponse extends ServerHttpResponseDecorator {
+		private final ServerWebExchange exchange;
+		private final String route;
+
+		ETagResponse(ServerWebExchange exchange, String route) {
+			super(exchange.getResponse());
+			this.exchange = exchange;
+			this.route = route;
+		}
+
+		@Override
+		public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+			HttpStatus status = this.getStatusCode();
+			if (status != null && status != HttpStatus.OK) {
+				return super.writeWith(body);
+			}
+			return DataBufferUtils.join(body) //
+					.flatMap(this::writeOrNotModified) //
+					.switchIfEmpty(Mono.defer(this::setComplete));
+		}
+
+		@Override
+		public Mono<Void> writeAndFlushWith(
+				Publisher<? extends Publisher<? extends DataBuffer>> body) {
+			return this.writeWith(Flux.from(body).concatMap(Flux::from));
+		}
+
+		private Mono<Void> writeOrNotModified(DataBuffer buffer) {
+			String etag = etag(buffer);
+			HttpHeaders headers = this.getHeaders();
+			headers.setETag(etag);
+			List<String> ifNoneMatch = this.exchange.getRequest().getHeaders()
+					.getIfNoneMatch();
+			if (matches(ifNoneMatch, etag)) {
+				DataBufferUtils.release(buffer);
+				this.count("not_modified");
+				headers.remove(CONTENT_LENGTH);
+				this.setStatusCode(HttpStatus.NOT_MODIFIED);
+				return this.setComplete();
+			}
+			this.count("modified");
+			return super.writeWith(Mono.just(buffer));
+		}
+
+		private void count(String result) {
+			meterRegistry.counter("blog.etag.responses", "uri", this.route, "result",
+					result).increment();
+		}
+	}
+}
@@ -5,6 +5,7 @@ import java.io.StringWriter;
 import java.util.Objects;
 import java.util.concurrent.TimeoutException;
 
+import am.ik.blog.http.ConcurrencyLimitExceededException;
 import brave.Span;
 import brave.Tracer;
 import io.github.resilience4j.circuitbreaker.CircuitBreakerOpenException;
@@ -58,6 +59,13 @@ public class BlogExceptionHandler {
 		return this.renderError(e, HttpStatus.SERVICE_UNAVAILABLE);
 	}
 
+	@ExceptionHandler(ConcurrencyLimitExceededException.class)
+	public Rendering handleConcurrencyLimitExceededException(
+			ConcurrencyLimitExceededException e) {
+		log.warn(e.getMessage());
+		return this.renderError(e, HttpStatus.SERVICE_UNAVAILABLE);
+	}
+
 	@ExceptionHandler(RetryExhaustedException.class)
 	public Rendering handleRetryExhaustedException(RetryExhaustedException e) {
 		log.warn("Retry exhausted!", e);
@@ -0,0 +1,68 @@
+package am.ik.blog.http;
+
+import am.ik.blog.BlogProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+import org.springframework.core.codec.ByteArrayDecoder;
+import org.springframework.core.codec.StringDecoder;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2SmileDecoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import static org.springframework.http.HttpHeaders.ACCEPT;
+
+/**
+ * Negotiates the wire format with blog-api. In Smile mode Smile is preferred and JSON
+ * is accepted as a fallback, so an upstream that does not produce Smile keeps
+ * working.
+ */
+class BlogApiCodec {
+	static final MediaType APPLICATION_SMILE = MediaType
+			.parseMediaType("application/x-jackson-smile");
+	static final MediaType APPLICATION_STREAM_SMILE = MediaType
+			.parseMediaType("application/stream+x-jackson-smile");
+	private final BlogProperties.Codec codec;
+	private final ObjectMapper jsonMapper;
+	private final ObjectMapper smileMapper;
+
+	BlogApiCodec(BlogProperties.Codec codec,
+			Jackson2ObjectMapperBuilder objectMapperBuilder) {
+		this.codec = codec;
+		this.jsonMapper = objectMapperBuilder.build();
+		this.smileMapper = objectMapperBuilder.factory(new SmileFactory()).build();
+	}
+
+	WebClient.Builder configure(WebClient.Builder builder) {
+		if (this.codec != BlogProperties.Codec.SMILE) {
+			return builder;
+		}
+		// the default Smile decoder would win over a custom one and ignores
+		// spring.jackson.*, so register the decoders ourselves
+		return builder.codecs(codecs -> {
+			codecs.registerDefaults(false);
+			codecs.customCodecs().decoder(new ByteArrayDecoder());
+			codecs.customCodecs().decoder(StringDecoder.allMimeTypes());
+			codecs.customCodecs().decoder(new Jackson2SmileDecoder(this.smileMapper));
+			codecs.customCodecs().decoder(new Jackson2JsonDecoder(this.jsonMapper));
+		}).defaultHeader(ACCEPT, APPLICATION_SMILE + ", "
+				+ MediaType.APPLICATION_JSON_VALUE + ";q=0.9");
+	}
+
+	String streamAccept() {
+		if (this.codec != BlogProperties.Codec.SMILE) {
+			return MediaType.APPLICATION_STREAM_JSON_VALUE;
+		}
+		return APPLICATION_STREAM_SMILE + ", "
+				+ MediaType.APPLICATION_STREAM_JSON_VALUE + ";q=0.9";
+	}
+
+	ObjectMapper objectMapper(MediaType contentType) {
+		if (contentType != null && contentType.getSubtype().endsWith("x-jackson-smile")) {
+			return this.smileMapper;
+		}
+		return this.jsonMapper;
+	}
+}
@@ -1,7 +1,9 @@
 package am.ik.blog.http;
 
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
+import java.util.Optional;
 import java.util.function.Function;
 
 import am.ik.blog.BlogClient;
@@ -13,6 +15,8 @@ import am.ik.blog.model.Tag;
 import brave.Tracer;
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import org.slf4j.Logger;
@@ -22,9 +26,12 @@ import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.publisher.Signal;
 
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.cloud.circuitbreaker.commons.ReactiveCircuitBreakerFactory;
 import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
 
@@ -34,76 +41,253 @@ import static org.springframework.http.HttpHeaders.IF_MODIFIED_SINCE;
 import static org.springframework.http.HttpStatus.NOT_MODIFIED;
 
 @Component
+@ConditionalOnProperty(name = "blog.client.type", havingValue = "http", matchIfMissing = true)
 public class BlogHttpClient implements BlogClient {
 	private final WebClient webClient;
-	private final Cache<Long, Entry> entryCache;
+	private final BlogApiCodec codec;
+	private final Cache<Long, CachedValue<Entry>> entryCache;
+	private final BlogProperties.EntryCache entryCacheProps;
+	private final EntryDiskCache entryDiskCache;
 	private final Decorator decorator;
-	private final ReactiveCircuitBreakerFactory circuitBreakerFactory;
-	private final Retryer retryer;
+	private final Hedger hedger;
+	private final ConcurrencyLimiter limiter;
+	private final MeterRegistry meterRegistry;
+	private final SingleFlight<Long, Entry> entryFetches;
+	private final SingleFlight<Long, Entry> entryRevalidations;
+	private final ListingCache<BlogEntries> entriesCache;
+	private final ListingCache<BlogEntries> tagEntriesCache;
+	private final ListingCache<BlogEntries> categoryEntriesCache;
+	private final ListingCache<List<Tag>> tagsCache;
+	private final ListingCache<List<List<Category>>> categoriesCache;
+	private final LatestUpdateTracker latestUpdateTracker;
+	private final ConditionalFetcher<BlogEntries> entriesFetcher;
+	private final ConditionalFetcher<BlogEntries> tagEntriesFetcher;
+	private final ConditionalFetcher<BlogEntries> categoryEntriesFetcher;
+	private final ConditionalFetcher<List<Tag>> tagsFetcher;
+	private final ConditionalFetcher<List<List<Category>>> categoriesFetcher;
 	private static final Logger log = LoggerFactory.getLogger(BlogHttpClient.class);
 
 	public BlogHttpClient(WebClient.Builder builder, MeterRegistry meterRegistry,
 			BlogProperties props, ReactiveCircuitBreakerFactory circuitBreakerFactory,
-			Tracer tracer) {
+			Tracer tracer, OperationTimeouts timeouts, EntryDiskCache entryDiskCache,
+			FusedResilience fusedResilience,
+			Jackson2ObjectMapperBuilder objectMapperBuilder) {
+		this.entryCacheProps = props.getEntryCache();
+		this.entryDiskCache = entryDiskCache;
 		this.entryCache = CaffeineCacheMetrics.monitor(meterRegistry, Caffeine
 				.newBuilder() //
-				.maximumSize(100) //
-				.expireAfterWrite(3, TimeUnit.DAYS) //
-				.removalListener(
-						(key, value, cause) -> log.info("Remove cache(entryId={})", key)) //
+				.maximumWeight(this.entryCacheProps.getMaximumWeight().toBytes()) //
+				.weigher(new EntryWeigher()) //
+				.expireAfterWrite(this.entryCacheProps.getExpireAfterWrite()) //
+				.recordStats() //
+				.removalListener((key, value, cause) -> log
+						.info("Remove cache(entryId={}, cause={})", key, cause)) //
 				.build(), "entryCache");
-		this.circuitBreakerFactory = circuitBreakerFactory;
-		this.retryer = new Retryer(tracer, props.getRetry());
-		this.decorator = new Decorator(this.retryer, circuitBreakerFactory);
-		this.webClient = builder.baseUrl(props.getApi().getUrl()) //
+		Gauge.builder("blog.entry-cache.weighted-size", this.entryCache,
+				c -> c.policy().eviction()
+						.map(e -> (double) e.weightedSize().orElse(0L)).orElse(0.0)) //
+				.baseUnit("bytes") //
+				.register(meterRegistry);
+		Gauge.builder("blog.entry-cache.maximum-weight", this.entryCache,
+				c -> c.policy().eviction().map(e -> (double) e.getMaximum()).orElse(0.0)) //
+				.baseUnit("bytes") //
+				.register(meterRegistry);
+		FunctionCounter.builder("blog.entry-cache.eviction-weight", this.entryCache,
+				c -> c.stats().evictionWeight()) //
+				.baseUnit("bytes") //
+				.register(meterRegistry);
+		this.meterRegistry = meterRegistry;
+		this.entryFetches = new SingleFlight<>("blog-ui.findById", meterRegistry);
+		this.entryRevalidations = new SingleFlight<>("blog-ui.findById.revalidate",
+				meterRegistry);
+		Retryer retryer = new Retryer(tracer, props.getRetry(), meterRegistry);
+		this.hedger = new Hedger(props.getHedge(), meterRegistry);
+		this.limiter = new ConcurrencyLimiter(props.getConcurrency(), meterRegistry);
+		this.decorator = new Decorator(retryer, timeouts, this.limiter,
+				circuitBreakerFactory, fusedResilience);
+		BlogProperties.ListingCache listingCache = props.getListingCache();
+		this.entriesCache = new ListingCache<>("blog-ui.findAll", "entriesCache",
+				this.decorator, listingCache, meterRegistry);
+		this.tagEntriesCache = new ListingCache<>("blog-ui.findByTag",
+				"tagEntriesCache", this.decorator, listingCache, meterRegistry);
+		this.categoryEntriesCache = new ListingCache<>("blog-ui.findByCategories",
+				"categoryEntriesCache", this.decorator, listingCache, meterRegistry);
+		this.tagsCache = new ListingCache<>("blog-ui.findTags", "tagsCache",
+				this.decorator, listingCache, meterRegistry);
+		this.categoriesCache = new ListingCache<>("blog-ui.findCategories",
+				"categoriesCache", this.decorator, listingCache, meterRegistry);
+		this.codec = new BlogApiCodec(props.getApi().getCodec(), objectMapperBuilder);
+		ParameterizedTypeReference<BlogEntries> blogEntries = ParameterizedTypeReference
+				.forType(BlogEntries.class);
+		this.entriesFetcher = new ConditionalFetcher<>("blog-ui.findAll", blogEntries,
+				this.codec, listingCache, meterRegistry);
+		this.tagEntriesFetcher = new ConditionalFetcher<>("blog-ui.findByTag",
+				blogEntries, this.codec, listingCache, meterRegistry);
+		this.categoryEntriesFetcher = new ConditionalFetcher<>(
+				"blog-ui.findByCategories", blogEntries, this.codec, listingCache,
+				meterRegistry);
+		this.tagsFetcher = new ConditionalFetcher<>("blog-ui.findTags",
+				new ParameterizedTypeReference<List<Tag>>() {
+
+				}, this.codec, listingCache, meterRegistry);
+		this.categoriesFetcher = new ConditionalFetcher<>("blog-ui.findCategories",
+				new ParameterizedTypeReference<List<List<Category>>>() {
+
+				}, this.codec, listingCache, meterRegistry);
+		this.webClient = this.codec.configure(builder) //
+				.baseUrl(props.getApi().getUrl()) //
 				.build();
+		this.latestUpdateTracker = new LatestUpdateTracker(
+				props.getHome().getLatestUpdateMaxAge(),
+				() -> this.fetchAll(PageRequest.of(0, 1)) //
+						.transform(this.decorator.decorate("blog-ui.latestUpdate")) //
+						.flatMap(entries -> Mono.justOrEmpty(entries.getContent()
+								.stream().findFirst()
+								.map(e -> e.getUpdated().getDate().toInstant()))));
 	}
 
 	public Mono<Entry> findById(Long entryId) {
 		Mono<Entry> entry = CacheMono
-				.lookup(key -> Mono.justOrEmpty(this.entryCache.get(key, x -> null)) //
-						.flatMap(e -> this.webClient.head() //
-								.uri("entries/{entryId}", entryId) //
-								.header(IF_MODIFIED_SINCE,
-										e.getUpdated().rfc1123DateTime()) //
-								.exchange() //
-								.filter(r -> r.statusCode() == NOT_MODIFIED) //
-								.map(x -> e))
+				.lookup(key -> Mono.justOrEmpty(this.entryCache.getIfPresent(key)) //
+						.switchIfEmpty(Mono.fromCallable(() -> this.restoreEntry(key))) //
+						.flatMap(this::revalidate) //
 						.map(Signal::next), entryId) //
-				.onCacheMissResume(() -> this.webClient.get() //
-						.uri("entries/{entryId}?excludeContent=false", entryId) //
-						.retrieve() //
-						.bodyToMono(Entry.class)) //
+				.onCacheMissResume(() -> this.fetchEntry(entryId)) //
 				.andWriteWith((key, signal) -> Mono.justOrEmpty(signal.get())
-						.doOnNext(e -> this.entryCache.put(key, e)).then());
+						.doOnNext(e -> this.cacheEntry(key, e)).then());
 
 		Function<Throwable, Mono<Entry>> fallback = error -> {
-			Entry cached = this.entryCache.getIfPresent(entryId);
+			CachedValue<Entry> cached = this.entryCache.getIfPresent(entryId);
 			return Mono.justOrEmpty(cached) //
+					.map(CachedValue::getValue) //
 					.switchIfEmpty(Mono.error(error));
 		};
 
-		final String name = "blog-ui.findById";
-		return entry.transform(this.retryer.retry(name))
-				.transform(x -> this.circuitBreakerFactory.create(name).run(x, fallback));
+		return entry.transform(this.decorator.resilient("blog-ui.findById", fallback));
+	}
+
+	private Mono<Entry> fetchEntry(Long entryId) {
+		return this.entryFetches.execute(entryId, () -> this.webClient.get() //
+				.uri("entries/{entryId}?excludeContent=false", entryId) //
+				.retrieve() //
+				.bodyToMono(Entry.class) //
+				.transform(this.hedger.hedge("blog-ui.findById")) //
+				.transform(this.limiter.limit("blog-ui.findById")));
+	}
+
+	private void cacheEntry(Long entryId, Entry entry) {
+		this.entryCache.put(entryId, new CachedValue<>(entry));
+		this.entryDiskCache.put(entry);
+	}
+
+	private CachedValue<Entry> restoreEntry(Long entryId) {
+		return this.entryDiskCache.get(entryId).map(stored -> {
+			CachedValue<Entry> cached = new CachedValue<>(stored.getEntry(),
+					stored.getAge());
+			this.entryCache.put(entryId, cached);
+			return cached;
+		}).orElse(null);
+	}
+
+	private Mono<Entry> revalidate(CachedValue<Entry> cached) {
+		if (!this.entryCacheProps.isStaleWhileRevalidate()
+				|| cached.isOlderThan(this.entryCacheProps.getMaxStale())) {
+			return this.checkNotModified(cached, "sync");
+		}
+		if (cached.isOlderThan(this.entryCacheProps.getRevalidateInterval())) {
+			this.meterRegistry.counter("blog.entry.served_stale").increment();
+			if (cached.tryStartRevalidation(
+					this.entryCacheProps.getRevalidateInterval())) {
+				this.revalidateInBackground(cached);
+			}
+		}
+		return Mono.just(cached.getValue());
+	}
+
+	private void revalidateInBackground(CachedValue<Entry> cached) {
+		Long entryId = cached.getValue().getEntryId();
+		this.checkNotModified(cached, "background") //
+				.switchIfEmpty(Mono.defer(() -> this.fetchEntry(entryId)) //
+						.doOnNext(e -> this.cacheEntry(entryId, e))) //
+				.subscribe(e -> log.debug("Revalidated cache(entryId={})", entryId),
+						e -> {
+							this.countRevalidation("background", "error");
+							log.warn("Failed to revalidate cache(entryId={})", entryId, e);
+						});
+	}
+
+	private Mono<Entry> checkNotModified(CachedValue<Entry> cached, String mode) {
+		Entry e = cached.getValue();
+		return this.entryRevalidations.execute(e.getEntryId(), () -> this.webClient
+				.head() //
+				.uri("entries/{entryId}", e.getEntryId()) //
+				.header(IF_MODIFIED_SINCE, e.getUpdated().rfc1123DateTime()) //
+				.exchange() //
+				.transform(this.hedger.hedge("blog-ui.findById.revalidate")) //
+				.transform(this.limiter.limit("blog-ui.findById.revalidate")) //
+				.doOnNext(r -> this.countRevalidation(mode,
+						r.statusCode() == NOT_MODIFIED ? "not_modified" : "modified")) //
+				.filter(r -> r.statusCode() == NOT_MODIFIED) //
+				.map(x -> {
+					cached.validated();
+					return e;
+				}));
+	}
+
+	private void countRevalidation(String mode, String result) {
+		this.meterRegistry
+				.counter("blog.entry.revalidation", "mode", mode, "result", result)
+				.increment();
+	}
+
+	public boolean isCached(Long entryId) {
+		return this.entryCache.asMap().containsKey(entryId);
+	}
+
+	public Optional<Instant> latestUpdate() {
+		return this.latestUpdateTracker.latestUpdate();
 	}
 
 	public Mono<BlogEntries> findAll(Pageable pageable) {
-		Mono<BlogEntries> entries = this.webClient.get() //
+		return this.entriesCache.get(ListingKey.of(pageable),
+				() -> this.fetchAll(pageable));
+	}
+
+	private Mono<BlogEntries> fetchAll(Pageable pageable) {
+		return this.entriesFetcher.fetch(ListingKey.of(pageable), () -> this.webClient
+				.get() //
 				.uri("entries?page={page}&size={size}&excludeContent=true",
-						pageable.getPageNumber(), pageable.getPageSize()) //
-				.retrieve() //
-				.bodyToMono(BlogEntries.class);
-		return entries.transform(this.decorator.decorate("blog-ui.findAll"));
+						pageable.getPageNumber(), pageable.getPageSize())) //
+				.doOnNext(entries -> {
+					if (pageable.getPageNumber() == 0) {
+						this.latestUpdateTracker.observe(entries.getContent());
+					}
+				});
 	}
 
 	public Flux<Entry> streamAll(Pageable pageable) {
-		Flux<Entry> entries = this.webClient.get()
-				.uri("entries?page={page}&size={size}&excludeContent=true",
-						pageable.getPageNumber(), pageable.getPageSize()) //
-				.header(ACCEPT, "application/stream+json").retrieve()
-				.bodyToFlux(Entry.class);
-		return entries.transform(this.decorator.decorate("blog-ui.streamAll"));
+		ListingKey key = ListingKey.of(pageable);
+		Flux<Entry> entries = Flux.defer(() -> {
+			List<Entry> buffer = new ArrayList<>();
+			return this.webClient.get()
+					.uri("entries?page={page}&size={size}&excludeContent=true",
+							pageable.getPageNumber(), pageable.getPageSize()) //
+					.header(ACCEPT, this.codec.streamAccept()).retrieve()
+					.bodyToFlux(Entry.class) //
+					.doOnNext(buffer::add) //
+					.doOnComplete(() -> {
+						this.entriesCache.put(key, new BlogEntries(buffer));
+						if (pageable.getPageNumber() == 0) {
+							this.latestUpdateTracker.observe(buffer);
+						}
+					});
+		}).transform(this.decorator.decorate("blog-ui.streamAll",
+				e -> this.entriesCache.lastKnownGood(key, e)
+						.flatMapIterable(BlogEntries::getContent)));
+		return this.entriesCache.getIfPresent(key, () -> this.fetchAll(pageable)) //
+				.map(x -> Flux.fromIterable(x.getContent())) //
+				.defaultIfEmpty(entries) //
+				.flatMapMany(Function.identity());
 	}
 
 	public Mono<BlogEntries> findByQuery(String query, Pageable pageable) {
@@ -117,45 +301,50 @@ public class BlogHttpClient implements BlogClient {
 
 	public Mono<BlogEntries> findByCategories(List<Category> categories,
 			Pageable pageable) {
-		Mono<BlogEntries> entries = this.webClient.get() //
-				.uri("categories/{categories}/entries?page={page}&size={size}&excludeContent=true",
-						categories.stream().map(Category::getName).collect(joining(",")),
-						pageable.getPageNumber(), pageable.getPageSize()) //
-				.retrieve() //
-				.bodyToMono(BlogEntries.class);
-		return entries.transform(this.decorator.decorate("blog-ui.findByCategories"));
+		String names = categories.stream().map(Category::getName).collect(joining(","));
+		ListingKey key = ListingKey.of(names, pageable);
+		return this.categoryEntriesCache.get(key,
+				() -> this.categoryEntriesFetcher.fetch(key, () -> this.webClient.get() //
+						.uri("categories/{categories}/entries?page={page}&size={size}&excludeContent=true",
+								names, pageable.getPageNumber(),
+								pageable.getPageSize())));
 	}
 
 	public Mono<BlogEntries> findByTag(Tag tag, Pageable pageable) {
-		Mono<BlogEntries> entries = this.webClient.get() //
-				.uri("tags/{tag}/entries?page={page}&size={size}&excludeContent=true",
-						tag.getName(), pageable.getPageNumber(), pageable.getPageSize()) //
-				.retrieve() //
-				.bodyToMono(BlogEntries.class);
-		return entries.transform(this.decorator.decorate("blog-ui.findByTag"));
+		ListingKey key = ListingKey.of(tag.getName(), pageable);
+		return this.tagEntriesCache.get(key,
+				() -> this.tagEntriesFetcher.fetch(key, () -> this.webClient.get() //
+						.uri("tags/{tag}/entries?page={page}&size={size}&excludeContent=true",
+								tag.getName(), pageable.getPageNumber(),
+								pageable.getPageSize())));
 	}
 
 	public Mono<List<Tag>> findTags() {
-		Mono<List<Tag>> tags = this.webClient.get() //
-				.uri("tags") //
-				.retrieve() //
-				.bodyToMono(new ParameterizedTypeReference<List<Tag>>() {
-
-				});
-		return tags.transform(this.decorator.decorate("blog-ui.findTags"));
+		return this.tagsCache.get(ListingKey.ALL,
+				() -> this.tagsFetcher.fetch(ListingKey.ALL, () -> this.webClient.get() //
+						.uri("tags")));
 	}
 
 	public Mono<List<List<Category>>> findCategories() {
-		Mono<List<List<Category>>> categories = this.webClient.get() //
-				.uri("categories") //
-				.retrieve() //
-				.bodyToMono(new ParameterizedTypeReference<List<List<Category>>>() {
-
-				});
-		return categories.transform(this.decorator.decorate("blog-ui.findCategories"));
+		return this.categoriesCache.get(ListingKey.ALL,
+				() -> this.categoriesFetcher.fetch(ListingKey.ALL, () -> this.webClient
+						.get() //
+						.uri("categories")));
 	}
 
 	public void clearCache() {
 		this.entryCache.invalidateAll();
+		this.entryDiskCache.clear();
+		this.entriesCache.clear();
+		this.tagEntriesCache.clear();
+		this.categoryEntriesCache.clear();
+		this.tagsCache.clear();
+		this.categoriesCache.clear();
+		this.latestUpdateTracker.clear();
+		this.entriesFetcher.clear();
+		this.tagEntriesFetcher.clear();
+		this.categoryEntriesFetcher.clear();
+		this.tagsFetcher.clear();
+		this.categoriesFetcher.clear();
 	}
 }
@@ -0,0 +1,43 @@
+package am.ik.blog.http;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+class CachedValue<T> {
+	private final T value;
+	private volatile long validatedAt;
+	private final AtomicLong revalidationStartedAt;
+
+	CachedValue(T value) {
+		this(value, Duration.ZERO);
+	}
+
+	CachedValue(T value, Duration age) {
+		this.value = value;
+		this.validatedAt = System.nanoTime() - age.toNanos();
+		this.revalidationStartedAt = new AtomicLong(this.validatedAt);
+	}
+
+	T getValue() {
+		return value;
+	}
+
+	Duration age() {
+		return Duration.ofNanos(System.nanoTime() - this.validatedAt);
+	}
+
+	boolean isOlderThan(Duration duration) {
+		return this.age().compareTo(duration) > 0;
+	}
+
+	void validated() {
+		this.validatedAt = System.nanoTime();
+	}
+
+	boolean tryStartRevalidation(Duration interval) {
+		long now = System.nanoTime();
+		long startedAt = this.revalidationStartedAt.get();
+		return now - startedAt >= interval.toNanos()
+				&& this.revalidationStartedAt.compareAndSet(startedAt, now);
+	}
+}
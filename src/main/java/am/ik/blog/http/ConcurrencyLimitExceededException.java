@@ -0,0 +1,16 @@
+package am.ik.blog.http;
+
+/**
+ * Thrown when an upstream operation is at its concurrency limit and the call could
+ * not be queued. It is neither retried nor recorded by the circuit breaker.
+ */
+public class ConcurrencyLimitExceededException extends RuntimeException {
+	public ConcurrencyLimitExceededException(String name, int limit) {
+		super("Concurrency limit exceeded for " + name + " (limit=" + limit + ")");
+	}
+
+	@Override
+	public synchronized Throwable fillInStackTrace() {
+		return this;
+	}
+}
@@ -0,0 +1,282 @@
+package am.ik.blog.http;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import am.ik.blog.BlogProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.reactivestreams.Publisher;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.publisher.SignalType;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Bounds the number of in-flight calls per operation name. The limit follows a
+ * gradient of the long-term over the latest round trip time: it shrinks when latency
+ * rises above the baseline and grows by a small queue allowance while latency stays
+ * flat. Calls over the limit wait briefly for a permit, or are rejected with
+ * {@link ConcurrencyLimitExceededException}.
+ */
+public class ConcurrencyLimiter {
+	private final BlogProperties.Concurrency props;
+	private final MeterRegistry meterRegistry;
+	private final ConcurrentMap<String, Limit> limits = new ConcurrentHashMap<>();
+
+	public ConcurrencyLimiter(BlogProperties.Concurrency props,
+			MeterRegistry meterRegistry) {
+		this.props = props;
+		this.meterRegistry = meterRegistry;
+	}
+
+	public <T> Function<Publisher<T>, Publisher<T>> limit(String name) {
+		if (!this.props.isEnabled()) {
+			return Function.identity();
+		}
+		Limit limit = this.limits.computeIfAbsent(name, Limit::new);
+		return publisher -> {
+			if (publisher instanceof Mono) {
+				return limit.acquire().flatMap(permit -> ((Mono<T>) publisher)
+						.doOnError(permit::drop).doFinally(permit::release));
+			}
+			else if (publisher instanceof Flux) {
+				return limit.acquire().flatMapMany(permit -> ((Flux<T>) publisher)
+						.doOnError(permit::drop).doFinally(permit::release));
+			}
+			throw new IllegalStateException(
+					"Publisher of type <" + publisher.getClass().getSimpleName()
+							+ "> are not supported by this operator");
+		};
+	}
+
+	int currentLimit(String name) {
+		return this.limits.computeIfAbsent(name, Limit::new).current();
+	}
+
+	class Limit {
+		private final String name;
+		private final AtomicInteger inFlight = new AtomicInteger();
+		private final AtomicInteger queued = new AtomicInteger();
+		private final Queue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+		private final Counter accepted;
+		private final Counter rejected;
+		private volatile double limit;
+		private double longRtt;
+
+		Limit(String name) {
+			this.name = name;
+			this.limit = props.getInitialLimit();
+			Gauge.builder("blog.concurrency.limit", this, l -> l.limit) //
+					.description("Current concurrency limit of the operation") //
+					.tag("name", name) //
+					.register(meterRegistry);
+			Gauge.builder("blog.concurrency.in-flight", this.inFlight,
+					AtomicInteger::get) //
+					.description("Calls currently holding a permit") //
+					.tag("name", name) //
+					.register(meterRegistry);
+			Gauge.builder("blog.concurrency.queued", this.queued, AtomicInteger::get) //
+					.description("Calls currently waiting for a permit") //
+					.tag("name", name) //
+					.register(meterRegistry);
+			this.accepted = Counter.builder("blog.concurrency.calls") //
+					.tag("name", name) //
+					.tag("result", "accepted") //
+					.register(meterRegistry);
+			this.rejected = Counter.builder("blog.concurrency.calls") //
+					.tag("name", name) //
+					.tag("result", "rejected") //
+					.register(meterRegistry);
+		}
+
+		int current() {
+			return (int) this.limit;
+		}
+
+		Mono<Permit> acquire() {
+			return Mono.defer(() -> {
+				if (this.tryAcquire()) {
+					this.accepted.increment();
+					return Mono.just(new Permit(this));
+				}
+				if (props.getMaxQueueWait().isZero()
+						|| this.queued.get() >= props.getMaxQueueSize()) {
+					return this.reject();
+				}
+				// the wait is timed here rather than with timeout(), which would drop
+				// a permit granted at the same moment without releasing it
+				return Mono.<Permit>create(sink -> {
+					Waiter waiter = new Waiter(sink);
+					this.queued.incrementAndGet();
+					this.waiters.offer(waiter);
+					Disposable timer = Schedulers.parallel().schedule(() -> {
+						if (waiter.cancel()) {
+							this.waiters.remove(waiter);
+							this.rejected.increment();
+							sink.error(new ConcurrencyLimitExceededException(this.name,
+									this.current()));
+						}
+					}, props.getMaxQueueWait().toNanos(), TimeUnit.NANOSECONDS);
+					sink.onCancel(() -> {
+						if (waiter.cancel()) {
+							this.waiters.remove(waiter);
+						}
+						else {
+							waiter.releaseGranted();
+						}
+					});
+					sink.onDispose(timer);
+					// a permit may have been released while enqueuing
+					this.drain();
+				});
+			});
+		}
+
+		private Mono<Permit> reject() {
+			this.rejected.increment();
+			return Mono.error(
+					new ConcurrencyLimitExceededException(this.name, this.current()));
+		}
+
+		private boolean tryAcquire() {
+			while (true) {
+				int current = this.inFlight.get();
+				if (current >= this.current()) {
+					return false;
+				}
+				if (this.inFlight.compareAndSet(current, current + 1)) {
+					return true;
+				}
+			}
+		}
+
+		private void drain() {
+			while (!this.waiters.isEmpty() && this.tryAcquire()) {
+				Waiter waiter = this.waiters.poll();
+				if (waiter == null) {
+					this.inFlight.decrementAndGet();
+					return;
+				}
+				if (!waiter.grant(new Permit(this))) {
+					this.inFlight.decrementAndGet();
+				}
+			}
+		}
+
+		void release(Permit permit, SignalType signal) {
+			this.inFlight.decrementAndGet();
+			if (signal == SignalType.ON_COMPLETE && !permit.dropped) {
+				this.sample(System.nanoTime() - permit.start, permit.inFlight);
+			}
+			this.drain();
+		}
+
+		synchronized void drop() {
+			this.limit = Math.max(props.getMinLimit(), this.limit * 0.9);
+		}
+
+		synchronized void sample(long rtt, int inFlight) {
+			if (this.longRtt == 0) {
+				this.longRtt = rtt;
+			}
+			else {
+				this.longRtt += (rtt - this.longRtt) / props.getLongWindow();
+			}
+			// let the baseline recover quickly after a period of high latency
+			if (this.longRtt / rtt > 2) {
+				this.longRtt *= 0.95;
+			}
+			// don't grow the limit while it isn't being used
+			if (inFlight < this.limit / 2) {
+				return;
+			}
+			double gradient = Math.max(0.5,
+					Math.min(1.0, props.getTolerance() * this.longRtt / rtt));
+			double next = this.limit * gradient + Math.sqrt(this.limit);
+			next = this.limit * (1 - props.getSmoothing())
+					+ next * props.getSmoothing();
+			this.limit = Math.max(props.getMinLimit(),
+					Math.min(props.getMaxLimit(), next));
+		}
+
+		private class Waiter {
+			private final MonoSink<Permit> sink;
+			private final AtomicBoolean done = new AtomicBoolean(false);
+			private volatile Permit granted;
+
+			Waiter(MonoSink<Permit> sink) {
+				this.sink = sink;
+			}
+
+			boolean grant(Permit permit) {
+				// set before winning so that a losing cancel always sees it
+				this.granted = permit;
+				if (!this.done.compareAndSet(false, true)) {
+					return false;
+				}
+				queued.decrementAndGet();
+				accepted.increment();
+				this.sink.success(permit);
+				return true;
+			}
+
+			boolean cancel() {
+				if (!this.done.compareAndSet(false, true)) {
+					return false;
+				}
+				queued.decrementAndGet();
+				return true;
+			}
+
+			/**
+			 * The call was cancelled after the permit was granted but possibly before
+			 * it was used. Releasing is idempotent, so this is safe even if the call
+			 * already started with it.
+			 */
+			void releaseGranted() {
+				Permit permit = this.granted;
+				if (permit != null) {
+					permit.release(SignalType.CANCEL);
+				}
+			}
+		}
+	}
+
+	static class Permit {
+		private final Limit limit;
+		private final long start = System.nanoTime();
+		private final int inFlight;
+		private final AtomicBoolean released = new AtomicBoolean(false);
+		private volatile boolean dropped;
+
+		Permit(Limit limit) {
+			this.limit = limit;
+			this.inFlight = limit.inFlight.get();
+		}
+
+		void drop(Throwable e) {
+			if (e instanceof TimeoutException
+					|| e.getCause() instanceof TimeoutException) {
+				this.dropped = true;
+				this.limit.drop();
+			}
+		}
+
+		void release(SignalType signal) {
+			if (this.released.compareAndSet(false, true)) {
+				this.limit.release(this, signal);
+			}
+		}
+	}
+}
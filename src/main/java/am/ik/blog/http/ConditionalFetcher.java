@@ -0,0 +1,154 @@
+package am.ik.blog.http;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import am.ik.blog.BlogProperties;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import reactor.core.publisher.Mono;
+
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import static org.springframework.http.HttpHeaders.IF_MODIFIED_SINCE;
+import static org.springframework.http.HttpHeaders.IF_NONE_MATCH;
+import static org.springframework.http.HttpHeaders.LAST_MODIFIED;
+import static org.springframework.http.HttpStatus.NOT_MODIFIED;
+
+/**
+ * Fetches a listing with {@code If-None-Match}/{@code If-Modified-Since} once
+ * blog-api has handed out validators for its key, and reuses the previously decoded
+ * value on {@code 304}. Validators outlive the listing cache entries
+ * ({@code blog.listing-cache.validator-ttl}), so an expired listing is usually
+ * revalidated rather than downloaded again.
+ */
+class ConditionalFetcher<T> {
+	private final String name;
+	private final ParameterizedTypeReference<T> type;
+	private final BlogApiCodec codec;
+	private final Cache<ListingKey, Validated<T>> validated;
+	private final MeterRegistry meterRegistry;
+	private final Timer decodeTimer;
+	private final Counter savedBytes;
+
+	ConditionalFetcher(String name, ParameterizedTypeReference<T> type,
+			BlogApiCodec codec, BlogProperties.ListingCache props,
+			MeterRegistry meterRegistry) {
+		this.name = name;
+		this.type = type;
+		this.codec = codec;
+		this.validated = Caffeine.newBuilder() //
+				.maximumSize(props.getMaximumSize()) //
+				.expireAfterWrite(props.getValidatorTtl()) //
+				.build();
+		this.meterRegistry = meterRegistry;
+		this.decodeTimer = Timer.builder("blog.upstream.decode") //
+				.description("Time spent decoding upstream listing bodies") //
+				.tag("name", name) //
+				.register(meterRegistry);
+		this.savedBytes = Counter.builder("blog.upstream.saved") //
+				.description("Body bytes not downloaded thanks to a 304") //
+				.baseUnit("bytes") //
+				.tag("name", name) //
+				.register(meterRegistry);
+	}
+
+	Mono<T> fetch(ListingKey key, Supplier<WebClient.RequestHeadersSpec<?>> request) {
+		return Mono.defer(() -> {
+			Validated<T> previous = this.validated.getIfPresent(key);
+			WebClient.RequestHeadersSpec<?> spec = request.get();
+			if (previous != null) {
+				if (previous.etag != null) {
+					spec.header(IF_NONE_MATCH, previous.etag);
+				}
+				if (previous.lastModified != null) {
+					spec.header(IF_MODIFIED_SINCE, previous.lastModified);
+				}
+			}
+			return spec.exchange()
+					.flatMap(response -> this.handle(key, previous, response));
+		});
+	}
+
+	void clear() {
+		this.validated.invalidateAll();
+	}
+
+	private Mono<T> handle(ListingKey key, Validated<T> previous,
+			ClientResponse response) {
+		if (response.statusCode() == NOT_MODIFIED && previous != null) {
+			this.count("not_modified");
+			this.savedBytes.increment(previous.size);
+			return response.bodyToMono(Void.class).thenReturn(previous.value);
+		}
+		if (!response.statusCode().is2xxSuccessful()) {
+			return response.bodyToMono(byte[].class) //
+					.defaultIfEmpty(new byte[0]) //
+					.flatMap(body -> Mono.error(WebClientResponseException.create(
+							response.rawStatusCode(),
+							response.statusCode().getReasonPhrase(),
+							response.headers().asHttpHeaders(), body, null)));
+		}
+		HttpHeaders headers = response.headers().asHttpHeaders();
+		MediaType contentType = headers.getContentType();
+		String etag = headers.getETag();
+		String lastModified = headers.getFirst(LAST_MODIFIED);
+		return response.bodyToMono(byte[].class).map(body -> {
+			T value = this.decode(contentType, body);
+			if (etag != null || lastModified != null) {
+				this.validated.put(key,
+						new Validated<>(value, etag, lastModified, body.length));
+			}
+			this.count("modified");
+			return value;
+		});
+	}
+
+	private T decode(MediaType contentType, byte[] body) {
+		long start = System.nanoTime();
+		try {
+			ObjectMapper objectMapper = this.codec.objectMapper(contentType);
+			JavaType javaType = objectMapper.getTypeFactory()
+					.constructType(this.type.getType());
+			return objectMapper.readValue(body, javaType);
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		finally {
+			this.decodeTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	private void count(String result) {
+		this.meterRegistry
+				.counter("blog.upstream.conditional", "name", this.name, "result", result)
+				.increment();
+	}
+
+	static final class Validated<T> {
+		private final T value;
+		private final String etag;
+		private final String lastModified;
+		private final int size;
+
+		Validated(T value, String etag, String lastModified, int size) {
+			this.value = value;
+			this.etag = etag;
+			this.lastModified = lastModified;
+			this.size = size;
+		}
+	}
+}
@@ -1,5 +1,7 @@
 package am.ik.blog.http;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.function.Function;
 
 import org.reactivestreams.Publisher;
@@ -9,30 +11,139 @@ import reactor.core.publisher.Mono;
 import org.springframework.cloud.circuitbreaker.commons.ReactiveCircuitBreaker;
 import org.springframework.cloud.circuitbreaker.commons.ReactiveCircuitBreakerFactory;
 
+/**
+ * Wraps upstream calls in the time limit, retry, circuit breaker and concurrency
+ * limit of their operation. The {@link Pipeline} of each operation is built once, on
+ * first use, so decorating a call does not create a circuit breaker or retry again.
+ * With {@link FusedResilience} enabled, single value calls go through one
+ * {@link ResilientMono} instead of the time limit, retry and circuit breaker chain.
+ */
 public class Decorator {
 	private final Retryer retryer;
+	private final OperationTimeouts timeouts;
+	private final ConcurrencyLimiter limiter;
 	private final ReactiveCircuitBreakerFactory circuitBreakerFactory;
+	private final FusedResilience fused;
+	private final ConcurrentMap<String, Pipeline<?>> pipelines = new ConcurrentHashMap<>();
 
-	public Decorator(Retryer retryer,
-			ReactiveCircuitBreakerFactory circuitBreakerFactory) {
+	public Decorator(Retryer retryer, OperationTimeouts timeouts,
+			ConcurrencyLimiter limiter,
+			ReactiveCircuitBreakerFactory circuitBreakerFactory, FusedResilience fused) {
 		this.retryer = retryer;
+		this.timeouts = timeouts;
+		this.limiter = limiter;
 		this.circuitBreakerFactory = circuitBreakerFactory;
+		this.fused = fused;
 	}
 
 	public <T> Function<Publisher<T>, Publisher<T>> decorate(String name) {
-		ReactiveCircuitBreaker circuitBreaker = this.circuitBreakerFactory.create(name);
-		return publisher -> {
+		return this.<T>pipeline(name).decorated;
+	}
+
+	/**
+	 * Same as {@link #decorate(String)} but resumes with {@code fallback} when the
+	 * call fails or the circuit breaker is open.
+	 */
+	public <T> Function<Publisher<T>, Publisher<T>> decorate(String name,
+			Function<Throwable, ? extends Publisher<T>> fallback) {
+		Pipeline<T> pipeline = this.pipeline(name);
+		return publisher -> pipeline.limit.apply(pipeline.apply(publisher, fallback));
+	}
+
+	/**
+	 * Same as {@link #decorate(String, Function)} without the concurrency limit, for
+	 * callers limiting the upstream call themselves.
+	 */
+	public <T> Function<Publisher<T>, Publisher<T>> resilient(String name,
+			Function<Throwable, ? extends Publisher<T>> fallback) {
+		Pipeline<T> pipeline = this.pipeline(name);
+		return publisher -> pipeline.apply(publisher, fallback);
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T> Pipeline<T> pipeline(String name) {
+		// not built eagerly, the factory may not be customized yet at construction
+		Pipeline<?> pipeline = this.pipelines.get(name);
+		if (pipeline == null) {
+			pipeline = this.pipelines.computeIfAbsent(name, key -> new Pipeline<T>(key));
+		}
+		return (Pipeline<T>) pipeline;
+	}
+
+	class Pipeline<T> {
+		private final String name;
+		private final Function<Publisher<T>, Publisher<T>> timeLimit;
+		private final Function<Publisher<T>, Publisher<T>> retry;
+		private final Function<Publisher<T>, Publisher<T>> limit;
+		private final Function<Mono<T>, Mono<T>> monoBreaker;
+		private final Function<Flux<T>, Flux<T>> fluxBreaker;
+		private final Function<Publisher<T>, Publisher<T>> decorated;
+		private volatile Function<Mono<T>, Mono<T>> fusedOperator;
+		private volatile ReactiveCircuitBreaker circuitBreaker;
+
+		Pipeline(String name) {
+			this.name = name;
+			this.timeLimit = timeouts.timeLimit(name);
+			this.retry = retryer.retry(name);
+			this.limit = limiter.limit(name);
+			this.monoBreaker = x -> this.circuitBreaker().run(x, Mono::error);
+			this.fluxBreaker = x -> this.circuitBreaker().run(x, Flux::error);
+			this.decorated = publisher -> this.limit.apply(this.apply(publisher, null));
+		}
+
+		Publisher<T> apply(Publisher<T> publisher,
+				Function<Throwable, ? extends Publisher<T>> fallback) {
 			if (publisher instanceof Mono) {
-				return ((Mono<T>) publisher).transform(this.retryer.retry(name)) //
-						.transform(x -> circuitBreaker.run(x, Mono::error));
+				if (fused.isEnabled()) {
+					Mono<T> mono = ((Mono<T>) publisher).transform(this.fused());
+					return fallback == null ? mono
+							: mono.onErrorResume(e -> Mono.from(fallback.apply(e)));
+				}
+				return ((Mono<T>) publisher).transform(this.timeLimit) //
+						.transform(this.retry) //
+						.transform(fallback == null ? this.monoBreaker
+								: x -> this.circuitBreaker().run(x,
+										e -> Mono.from(fallback.apply(e))));
 			}
 			else if (publisher instanceof Flux) {
-				return ((Flux<T>) publisher).transform(this.retryer.retry(name)) //
-						.transform(x -> circuitBreaker.run(x, Flux::error));
+				return ((Flux<T>) publisher).transform(this.timeLimit) //
+						.transform(this.retry) //
+						.transform(fallback == null ? this.fluxBreaker
+								: x -> this.circuitBreaker().run(x,
+										e -> Flux.from(fallback.apply(e))));
 			}
 			throw new IllegalStateException(
 					"Publisher of type <" + publisher.getClass().getSimpleName()
 							+ "> are not supported by this operator");
-		};
+		}
+
+		// created on demand so that an operation only ever gets one of the two breakers
+		private ReactiveCircuitBreaker circuitBreaker() {
+			ReactiveCircuitBreaker circuitBreaker = this.circuitBreaker;
+			if (circuitBreaker == null) {
+				synchronized (this) {
+					circuitBreaker = this.circuitBreaker;
+					if (circuitBreaker == null) {
+						circuitBreaker = circuitBreakerFactory.create(this.name);
+						this.circuitBreaker = circuitBreaker;
+					}
+				}
+			}
+			return circuitBreaker;
+		}
+
+		private Function<Mono<T>, Mono<T>> fused() {
+			Function<Mono<T>, Mono<T>> operator = this.fusedOperator;
+			if (operator == null) {
+				synchronized (this) {
+					operator = this.fusedOperator;
+					if (operator == null) {
+						operator = fused.operator(this.name, retryer, timeouts);
+						this.fusedOperator = operator;
+					}
+				}
+			}
+			return operator;
+		}
 	}
 }
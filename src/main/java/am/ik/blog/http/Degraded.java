@@ -0,0 +1,34 @@
+package am.ik.blog.http;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+/**
+ * Collects, through the Reactor {@link Context} of a request, the operations that
+ * answered it with degraded (stale) content.
+ */
+public final class Degraded {
+	private final Set<String> operations = ConcurrentHashMap.newKeySet();
+
+	public static Context put(Context context, Degraded degraded) {
+		return context.put(Degraded.class, degraded);
+	}
+
+	static Mono<Void> mark(String operation) {
+		return Mono.subscriberContext() //
+				.doOnNext(context -> context.<Degraded>getOrEmpty(Degraded.class)
+						.ifPresent(degraded -> degraded.operations.add(operation))) //
+				.then();
+	}
+
+	public boolean isDegraded() {
+		return !this.operations.isEmpty();
+	}
+
+	public Set<String> getOperations() {
+		return this.operations;
+	}
+}
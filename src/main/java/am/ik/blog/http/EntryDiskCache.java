@@ -0,0 +1,298 @@
+package am.ik.blog.http;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import am.ik.blog.BlogProperties;
+import am.ik.blog.model.Entry;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.stereotype.Component;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Second level entry cache that survives restarts. Entries are appended as Smile to a
+ * memory-mapped segment file and located through an in-memory index rebuilt by
+ * scanning the segment on startup. When the segment is full, the newest records that
+ * fit into half of it are kept and the rest is dropped.
+ * <p>
+ * Record layout: {@code magic(4) length(4) entryId(8) storedAt(8) smile(length)}.
+ * The magic is written last so a torn write is never picked up on reload.
+ */
+@Component
+public class EntryDiskCache implements DisposableBean {
+	private static final Logger log = LoggerFactory.getLogger(EntryDiskCache.class);
+	static final int MAGIC = 0x424C4F47;
+	static final int HEADER_SIZE = 24;
+	private final ObjectMapper objectMapper;
+	private final ConcurrentMap<Long, Slot> index = new ConcurrentHashMap<>();
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private final Counter hits;
+	private final Counter misses;
+	private final Counter compactions;
+	private final boolean enabled;
+	private FileChannel channel;
+	private MappedByteBuffer buffer;
+	private volatile int position;
+
+	public EntryDiskCache(BlogProperties props,
+			Jackson2ObjectMapperBuilder objectMapperBuilder,
+			MeterRegistry meterRegistry) {
+		BlogProperties.EntryCache.Disk disk = props.getEntryCache().getDisk();
+		this.objectMapper = objectMapperBuilder.factory(new SmileFactory()).build();
+		this.hits = Counter.builder("blog.entry-disk-cache.requests") //
+				.tag("result", "hit") //
+				.register(meterRegistry);
+		this.misses = Counter.builder("blog.entry-disk-cache.requests") //
+				.tag("result", "miss") //
+				.register(meterRegistry);
+		this.compactions = Counter.builder("blog.entry-disk-cache.compactions") //
+				.register(meterRegistry);
+		this.enabled = disk.isEnabled() && this.open(Paths.get(disk.getPath()),
+				(int) disk.getCapacity().toBytes());
+		Gauge.builder("blog.entry-disk-cache.size", this.index, Map::size) //
+				.register(meterRegistry);
+		Gauge.builder("blog.entry-disk-cache.used", this, c -> c.position) //
+				.baseUnit("bytes") //
+				.register(meterRegistry);
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public Optional<StoredEntry> get(Long entryId) {
+		if (!this.enabled) {
+			return Optional.empty();
+		}
+		byte[] bytes;
+		long storedAt;
+		this.lock.readLock().lock();
+		try {
+			Slot slot = this.index.get(entryId);
+			if (slot == null) {
+				this.misses.increment();
+				return Optional.empty();
+			}
+			bytes = new byte[slot.length];
+			storedAt = slot.storedAt;
+			ByteBuffer view = this.buffer.duplicate();
+			view.position(slot.offset);
+			view.get(bytes);
+		}
+		finally {
+			this.lock.readLock().unlock();
+		}
+		try {
+			Entry entry = this.objectMapper.readValue(bytes, Entry.class);
+			this.hits.increment();
+			return Optional.of(new StoredEntry(entry,
+					Duration.ofMillis(Math.max(0, System.currentTimeMillis() - storedAt))));
+		}
+		catch (IOException e) {
+			log.warn("Failed to read disk cache(entryId={})", entryId, e);
+			this.index.remove(entryId);
+			this.misses.increment();
+			return Optional.empty();
+		}
+	}
+
+	public void put(Entry entry) {
+		if (!this.enabled || entry.getEntryId() == null) {
+			return;
+		}
+		byte[] bytes;
+		try {
+			bytes = this.objectMapper.writeValueAsBytes(entry);
+		}
+		catch (JsonProcessingException e) {
+			log.warn("Failed to write disk cache(entryId={})", entry.getEntryId(), e);
+			return;
+		}
+		int capacity = this.buffer.capacity();
+		if (HEADER_SIZE + bytes.length + 4 > capacity / 2) {
+			log.info("Skip disk cache(entryId={}) as it is too large",
+					entry.getEntryId());
+			return;
+		}
+		this.lock.writeLock().lock();
+		try {
+			if (this.position + HEADER_SIZE + bytes.length + 4 > capacity) {
+				this.compact();
+			}
+			this.append(entry.getEntryId(), System.currentTimeMillis(), bytes);
+		}
+		finally {
+			this.lock.writeLock().unlock();
+		}
+	}
+
+	public void clear() {
+		if (!this.enabled) {
+			return;
+		}
+		this.lock.writeLock().lock();
+		try {
+			this.index.clear();
+			this.position = 0;
+			this.buffer.putInt(0, 0);
+		}
+		finally {
+			this.lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public void destroy() throws Exception {
+		if (this.enabled) {
+			this.buffer.force();
+			this.channel.close();
+		}
+	}
+
+	private boolean open(Path path, int capacity) {
+		try {
+			Files.createDirectories(path.getParent());
+			this.channel = FileChannel.open(path, CREATE, READ, WRITE);
+			this.buffer = this.channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+			this.position = this.load();
+			log.info("Loaded {} entries ({} bytes) from {}", this.index.size(),
+					this.position, path);
+			return true;
+		}
+		catch (IOException e) {
+			log.warn("Disable disk cache as {} cannot be opened", path, e);
+			return false;
+		}
+	}
+
+	private int load() {
+		int capacity = this.buffer.capacity();
+		int offset = 0;
+		while (offset + HEADER_SIZE <= capacity
+				&& this.buffer.getInt(offset) == MAGIC) {
+			int length = this.buffer.getInt(offset + 4);
+			if (length <= 0 || offset + HEADER_SIZE + length > capacity) {
+				break;
+			}
+			long entryId = this.buffer.getLong(offset + 8);
+			long storedAt = this.buffer.getLong(offset + 16);
+			this.index.put(entryId, new Slot(offset + HEADER_SIZE, length, storedAt));
+			offset += HEADER_SIZE + length;
+		}
+		return offset;
+	}
+
+	private void append(long entryId, long storedAt, byte[] bytes) {
+		int offset = this.position;
+		int end = offset + HEADER_SIZE + bytes.length;
+		ByteBuffer view = this.buffer.duplicate();
+		view.position(offset + HEADER_SIZE);
+		view.put(bytes);
+		this.buffer.putInt(end, 0);
+		this.buffer.putLong(offset + 16, storedAt);
+		this.buffer.putLong(offset + 8, entryId);
+		this.buffer.putInt(offset + 4, bytes.length);
+		this.buffer.putInt(offset, MAGIC);
+		this.index.put(entryId, new Slot(offset + HEADER_SIZE, bytes.length, storedAt));
+		this.position = end;
+	}
+
+	private void compact() {
+		List<Map.Entry<Long, Slot>> newestFirst = new ArrayList<>(this.index.entrySet());
+		newestFirst.sort(Comparator.comparingInt(
+				(Map.Entry<Long, Slot> e) -> e.getValue().offset).reversed());
+		int budget = this.buffer.capacity() / 2;
+		List<Record> retained = new ArrayList<>();
+		for (Map.Entry<Long, Slot> e : newestFirst) {
+			Slot slot = e.getValue();
+			budget -= HEADER_SIZE + slot.length;
+			if (budget < 0) {
+				break;
+			}
+			byte[] bytes = new byte[slot.length];
+			ByteBuffer view = this.buffer.duplicate();
+			view.position(slot.offset);
+			view.get(bytes);
+			retained.add(new Record(e.getKey(), slot.storedAt, bytes));
+		}
+		Collections.reverse(retained);
+		this.index.clear();
+		this.position = 0;
+		this.buffer.putInt(0, 0);
+		retained.forEach(r -> this.append(r.entryId, r.storedAt, r.bytes));
+		this.compactions.increment();
+		log.info("Compacted disk cache to {} entries ({} bytes)", this.index.size(),
+				this.position);
+	}
+
+	public static class StoredEntry {
+		private final Entry entry;
+		private final Duration age;
+
+		StoredEntry(Entry entry, Duration age) {
+			this.entry = entry;
+			this.age = age;
+		}
+
+		public Entry getEntry() {
+			return entry;
+		}
+
+		public Duration getAge() {
+			return age;
+		}
+	}
+
+	private static class Record {
+		private final long entryId;
+		private final long storedAt;
+		private final byte[] bytes;
+
+		Record(long entryId, long storedAt, byte[] bytes) {
+			this.entryId = entryId;
+			this.storedAt = storedAt;
+			this.bytes = bytes;
+		}
+	}
+
+	private static class Slot {
+		private final int offset;
+		private final int length;
+		private final long storedAt;
+
+		Slot(int offset, int length, long storedAt) {
+			this.offset = offset;
+			this.length = length;
+			this.storedAt = storedAt;
+		}
+	}
+}
@@ -0,0 +1,48 @@
+package am.ik.blog.http;
+
+import java.util.List;
+import java.util.function.Function;
+
+import am.ik.blog.model.Entry;
+import am.ik.blog.model.FrontMatter;
+import com.github.benmanes.caffeine.cache.Weigher;
+
+/**
+ * Approximates the retained size of a cached entry in bytes. Strings are counted as
+ * two bytes per char, which overestimates Latin-1 content but is close for Japanese
+ * posts.
+ */
+class EntryWeigher implements Weigher<Long, CachedValue<Entry>> {
+	static final int OVERHEAD = 512;
+
+	@Override
+	public int weigh(Long key, CachedValue<Entry> value) {
+		return weigh(value.getValue());
+	}
+
+	static int weigh(Entry entry) {
+		long weight = OVERHEAD + chars(entry.getContent());
+		FrontMatter frontMatter = entry.getFrontMatter();
+		if (frontMatter != null) {
+			weight += chars(frontMatter.getTitle());
+			weight += chars(frontMatter.getTags(), t -> t.getName());
+			weight += chars(frontMatter.getCategories(), c -> c.getName());
+		}
+		return (int) Math.min(Integer.MAX_VALUE, weight);
+	}
+
+	private static long chars(String s) {
+		return s == null ? 0 : 2L * s.length();
+	}
+
+	private static <T> long chars(List<T> list, Function<T, String> name) {
+		if (list == null) {
+			return 0;
+		}
+		long weight = 0;
+		for (T t : list) {
+			weight += 16 + chars(name.apply(t));
+		}
+		return weight;
+	}
+}
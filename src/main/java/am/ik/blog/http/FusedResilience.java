@@ -0,0 +1,43 @@
+package am.ik.blog.http;
+
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import am.ik.blog.BlogProperties;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Circuit breakers for {@link ResilientMono}, the fused time limit, retry and circuit
+ * breaker operator used by the {@link Decorator} when
+ * {@code blog.fused-resilience} is enabled. They share the configuration of the
+ * circuit breaker factory but are registered apart from it.
+ */
+public class FusedResilience {
+	private final boolean enabled;
+	private final CircuitBreakerRegistry registry;
+	private final Consumer<CircuitBreaker> customizer;
+
+	public FusedResilience(BlogProperties props, CircuitBreakerConfig config,
+			Consumer<CircuitBreaker> customizer) {
+		this.enabled = props.isFusedResilience();
+		this.registry = CircuitBreakerRegistry.of(config);
+		this.customizer = customizer;
+	}
+
+	public boolean isEnabled() {
+		return this.enabled;
+	}
+
+	<T> Function<Mono<T>, Mono<T>> operator(String name, Retryer retryer,
+			OperationTimeouts timeouts) {
+		CircuitBreaker circuitBreaker = this.registry.circuitBreaker(name);
+		this.customizer.accept(circuitBreaker);
+		ResilientMono.Policy policy = new ResilientMono.Policy(name, circuitBreaker,
+				retryer, timeouts, Schedulers.parallel());
+		return source -> new ResilientMono<>(source, policy);
+	}
+}
@@ -0,0 +1,114 @@
+package am.ik.blog.http;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import am.ik.blog.BlogProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import reactor.core.publisher.Mono;
+
+/**
+ * Sends a second, identical request when the first one has not answered within the
+ * hedge delay and takes whichever answers first; the loser is cancelled. A failed
+ * request falls back to the other one while it is still in flight. The delay
+ * follows the observed latency percentile once enough samples exist, and hedges are
+ * capped by a {@link RequestBudget}.
+ */
+public class Hedger {
+	private final BlogProperties.Hedge props;
+	private final MeterRegistry meterRegistry;
+	private final ConcurrentMap<String, Policy> policies = new ConcurrentHashMap<>();
+
+	public Hedger(BlogProperties.Hedge props, MeterRegistry meterRegistry) {
+		this.props = props;
+		this.meterRegistry = meterRegistry;
+	}
+
+	public <T> Function<Mono<T>, Mono<T>> hedge(String name) {
+		if (!this.props.isEnabled()) {
+			return Function.identity();
+		}
+		Policy policy = this.policies.computeIfAbsent(name, Policy::new);
+		return upstream -> Mono.defer(() -> {
+			policy.budget.deposit();
+			// a failed attempt only fails the call once no other attempt is in flight
+			AtomicInteger live = new AtomicInteger(1);
+			Mono<T> primary = this.attempt(upstream, policy, live, true);
+			Mono<T> hedged = Mono.delay(policy.delay()) //
+					.then(Mono.defer(() -> {
+						if (!policy.budget.tryWithdraw()) {
+							this.count("blog.hedge.rejected", name);
+							return Mono.<T> never();
+						}
+						this.count("blog.hedge.sent", name);
+						live.incrementAndGet();
+						return this.attempt(upstream, policy, live, false)
+								.doOnSuccess(x -> this.count("blog.hedge.won", name));
+					}));
+			return Mono.first(primary, hedged);
+		});
+	}
+
+	private <T> Mono<T> attempt(Mono<T> upstream, Policy policy, AtomicInteger live,
+			boolean primary) {
+		return Mono.defer(() -> {
+			long start = System.nanoTime();
+			Mono<T> timed = upstream.doOnSuccess(x -> policy.record(start));
+			// a primary beaten by its hedge took at least this long, leaving it out
+			// would pull the percentile, and so the delay, down
+			return primary ? timed.doOnCancel(() -> policy.record(start)) : timed;
+		}).onErrorResume(e -> live.decrementAndGet() == 0 ? Mono.error(e)
+				: Mono.never());
+	}
+
+	Duration delay(String name) {
+		return this.policies.computeIfAbsent(name, Policy::new).delay();
+	}
+
+	private void count(String meter, String name) {
+		this.meterRegistry.counter(meter, "name", name).increment();
+	}
+
+	class Policy {
+		private final Timer latency;
+		private final RequestBudget budget;
+
+		Policy(String name) {
+			this.latency = Timer.builder("blog.hedge.latency") //
+					.description("Latency of requests eligible for hedging, "
+							+ "at least the elapsed time of a cancelled primary") //
+					.tag("name", name) //
+					.publishPercentiles(props.getPercentile()) //
+					.register(meterRegistry);
+			this.budget = new RequestBudget(props.getBudgetRatio(),
+					props.getMaxBudget());
+		}
+
+		void record(long start) {
+			this.latency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+		}
+
+		Duration delay() {
+			if (this.latency.count() < props.getMinSamples()) {
+				return props.getDelay();
+			}
+			for (ValueAtPercentile value : this.latency.takeSnapshot()
+					.percentileValues()) {
+				if (value.percentile() == props.getPercentile()) {
+					long nanos = (long) value.value(TimeUnit.NANOSECONDS);
+					Duration observed = Duration.ofNanos(nanos);
+					return observed.compareTo(props.getMinDelay()) < 0
+							? props.getMinDelay()
+							: observed;
+				}
+			}
+			return props.getDelay();
+		}
+	}
+}
@@ -0,0 +1,63 @@
+package am.ik.blog.http;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import am.ik.blog.model.Author;
+import am.ik.blog.model.Entry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Mono;
+
+/**
+ * Remembers when the latest entry was updated, as last seen in a first listing page
+ * fetched from blog-api. The home page can answer conditional requests from it
+ * without any upstream call while it is younger than
+ * {@code blog.home.latest-update-max-age}. Once older, it is refreshed in the
+ * background with a single-entry listing.
+ */
+class LatestUpdateTracker {
+	private static final Logger log = LoggerFactory.getLogger(LatestUpdateTracker.class);
+	private final AtomicReference<CachedValue<Instant>> latest = new AtomicReference<>();
+	private final Duration maxAge;
+	private final Supplier<Mono<Instant>> refresher;
+
+	LatestUpdateTracker(Duration maxAge, Supplier<Mono<Instant>> refresher) {
+		this.maxAge = maxAge;
+		this.refresher = refresher;
+	}
+
+	Optional<Instant> latestUpdate() {
+		CachedValue<Instant> cached = this.latest.get();
+		if (cached == null) {
+			return Optional.empty();
+		}
+		if (cached.isOlderThan(this.maxAge)) {
+			if (cached.tryStartRevalidation(this.maxAge)) {
+				this.refresher.get().subscribe(
+						updated -> log.debug("Refreshed latest update ({})", updated),
+						e -> log.warn("Failed to refresh latest update", e));
+			}
+			return Optional.empty();
+		}
+		return Optional.of(cached.getValue());
+	}
+
+	void observe(List<Entry> firstPage) {
+		if (firstPage.isEmpty()) {
+			return;
+		}
+		Author updated = firstPage.get(0).getUpdated();
+		if (updated != null && updated.getDate() != null) {
+			this.latest.set(new CachedValue<>(updated.getDate().toInstant()));
+		}
+	}
+
+	void clear() {
+		this.latest.set(null);
+	}
+}
@@ -0,0 +1,133 @@
+package am.ik.blog.http;
+
+import java.util.function.Supplier;
+
+import am.ik.blog.BlogProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Mono;
+
+/**
+ * Caches one upstream listing operation. Values older than
+ * {@code blog.listing-cache.refresh-after} are still served while a single
+ * background call refreshes them; values older than {@code blog.listing-cache.ttl}
+ * are dropped. The last value fetched for each key is also kept for
+ * {@code blog.listing-cache.max-stale} and served, marked {@link Degraded}, when
+ * blog-api fails or the circuit breaker is open.
+ */
+public class ListingCache<V> {
+	private static final Logger log = LoggerFactory.getLogger(ListingCache.class);
+	private final String name;
+	private final Cache<ListingKey, CachedValue<V>> cache;
+	private final Cache<ListingKey, V> lastKnownGood;
+	private final SingleFlight<ListingKey, Fetched<V>> fetches;
+	private final Decorator decorator;
+	private final BlogProperties.ListingCache props;
+
+	public ListingCache(String name, String cacheName, Decorator decorator,
+			BlogProperties.ListingCache props, MeterRegistry meterRegistry) {
+		this.name = name;
+		this.cache = CaffeineCacheMetrics.monitor(meterRegistry, Caffeine.newBuilder() //
+				.maximumSize(props.getMaximumSize()) //
+				.expireAfterWrite(props.getTtl()) //
+				.recordStats() //
+				.build(), cacheName);
+		this.lastKnownGood = Caffeine.newBuilder() //
+				.maximumSize(props.getMaximumSize()) //
+				.expireAfterWrite(props.getMaxStale()) //
+				.build();
+		this.fetches = new SingleFlight<>(name, meterRegistry);
+		this.decorator = decorator;
+		this.props = props;
+	}
+
+	public Mono<V> get(ListingKey key, Supplier<Mono<V>> upstream) {
+		if (!this.props.isEnabled()) {
+			return this.decorate(key, upstream).flatMap(this::unwrap);
+		}
+		return this.getIfPresent(key, upstream)
+				.switchIfEmpty(Mono.defer(() -> this.fetch(key, upstream)));
+	}
+
+	public Mono<V> getIfPresent(ListingKey key, Supplier<Mono<V>> upstream) {
+		return Mono.defer(() -> {
+			CachedValue<V> cached = this.cache.getIfPresent(key);
+			if (cached == null) {
+				return Mono.empty();
+			}
+			if (cached.isOlderThan(this.props.getRefreshAfter())
+					&& cached.tryStartRevalidation(this.props.getRefreshAfter())) {
+				this.fetch(key, upstream).subscribe(
+						v -> log.debug("Refreshed {}({})", this.name, key),
+						e -> log.warn("Failed to refresh {}({})", this.name, key, e));
+			}
+			return Mono.just(cached.getValue());
+		});
+	}
+
+	public void put(ListingKey key, V value) {
+		if (this.props.isEnabled()) {
+			this.cache.put(key, new CachedValue<>(value));
+		}
+		if (!this.props.getMaxStale().isZero()) {
+			this.lastKnownGood.put(key, value);
+		}
+	}
+
+	/**
+	 * Resumes a failed call for the given key with its last known good value, or
+	 * rethrows the error when there is none or the error is not an outage.
+	 */
+	public Mono<V> lastKnownGood(ListingKey key, Throwable error) {
+		return this.stale(key, error).flatMap(this::unwrap);
+	}
+
+	public void clear() {
+		this.cache.invalidateAll();
+		this.lastKnownGood.invalidateAll();
+	}
+
+	private Mono<V> fetch(ListingKey key, Supplier<Mono<V>> upstream) {
+		// marked per subscriber, the context of the flight is the first one's only
+		return this.fetches.execute(key, () -> this.decorate(key, upstream))
+				.flatMap(this::unwrap);
+	}
+
+	private Mono<Fetched<V>> decorate(ListingKey key, Supplier<Mono<V>> upstream) {
+		// only fresh values are cached, never the fallback
+		return upstream.get() //
+				.doOnNext(value -> this.put(key, value)) //
+				.map(value -> new Fetched<>(value, false)) //
+				.transform(this.decorator.decorate(this.name, e -> this.stale(key, e)));
+	}
+
+	private Mono<Fetched<V>> stale(ListingKey key, Throwable error) {
+		V value = Retryer.retryable.test(error) ? this.lastKnownGood.getIfPresent(key)
+				: null;
+		if (value == null) {
+			return Mono.error(error);
+		}
+		log.warn("Serving last known good {}({}) due to {}", this.name, key,
+				error.toString());
+		return Mono.just(new Fetched<>(value, true));
+	}
+
+	private Mono<V> unwrap(Fetched<V> fetched) {
+		return fetched.degraded ? Degraded.mark(this.name).thenReturn(fetched.value)
+				: Mono.just(fetched.value);
+	}
+
+	static final class Fetched<V> {
+		final V value;
+		final boolean degraded;
+
+		Fetched(V value, boolean degraded) {
+			this.value = value;
+			this.degraded = degraded;
+		}
+	}
+}
@@ -0,0 +1,65 @@
+package am.ik.blog.http;
+
+import java.util.Objects;
+import java.util.StringJoiner;
+
+import org.springframework.data.domain.Pageable;
+
+public final class ListingKey {
+	public static final ListingKey ALL = new ListingKey("", 0, 0);
+	private final String criteria;
+	private final int page;
+	private final int size;
+
+	private ListingKey(String criteria, int page, int size) {
+		this.criteria = criteria;
+		this.page = page;
+		this.size = size;
+	}
+
+	public static ListingKey of(Pageable pageable) {
+		return of("", pageable);
+	}
+
+	public static ListingKey of(String criteria, Pageable pageable) {
+		return new ListingKey(criteria, pageable.getPageNumber(),
+				pageable.getPageSize());
+	}
+
+	public String getCriteria() {
+		return criteria;
+	}
+
+	public int getPage() {
+		return page;
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (o == null || getClass() != o.getClass()) {
+			return false;
+		}
+		ListingKey that = (ListingKey) o;
+		return page == that.page && size == that.size
+				&& criteria.equals(that.criteria);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(criteria, page, size);
+	}
+
+	@Override
+	public String toString() {
+		return new StringJoiner(", ", ListingKey.class.getSimpleName() + "[", "]")
+				.add("criteria='" + criteria + "'").add("page=" + page)
+				.add("size=" + size).toString();
+	}
+}
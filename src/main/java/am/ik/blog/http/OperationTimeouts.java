@@ -0,0 +1,168 @@
+package am.ik.blog.http;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import am.ik.blog.BlogProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Time limits per operation name. A limit is the configured value for the operation
+ * (or an equal share of {@code blog.circuit-breaker-timeout} per attempt). In adaptive mode, it becomes a multiple of
+ * the rolling latency percentile of successful calls, kept between a floor and a
+ * ceiling.
+ */
+public class OperationTimeouts {
+	private final BlogProperties.TimeLimit props;
+	private final BlogProperties.Retry retry;
+	private final Duration defaultTimeout;
+	private final MeterRegistry meterRegistry;
+	private final ConcurrentMap<String, Timer> latencies = new ConcurrentHashMap<>();
+
+	public OperationTimeouts(BlogProperties props, MeterRegistry meterRegistry) {
+		this.props = props.getTimeLimit();
+		this.retry = props.getRetry();
+		this.defaultTimeout = props.getCircuitBreakerTimeout();
+		this.meterRegistry = meterRegistry;
+	}
+
+	/**
+	 * Applies the current time limit to each attempt and records the latency of
+	 * successful ones. For a {@link Flux} the limit applies to the gap between signals,
+	 * but the whole stream is recorded.
+	 */
+	public <T> Function<Publisher<T>, Publisher<T>> timeLimit(String name) {
+		Timer latency = this.latency(name);
+		return publisher -> {
+			if (publisher instanceof Mono) {
+				return Mono.defer(() -> {
+					long start = System.nanoTime();
+					return ((Mono<T>) publisher).timeout(this.timeout(name))
+							.doOnSuccess(x -> latency.record(System.nanoTime() - start,
+									TimeUnit.NANOSECONDS));
+				});
+			}
+			else if (publisher instanceof Flux) {
+				return Flux.defer(() -> {
+					long start = System.nanoTime();
+					return ((Flux<T>) publisher).timeout(this.timeout(name))
+							.doOnComplete(() -> latency.record(
+									System.nanoTime() - start, TimeUnit.NANOSECONDS));
+				});
+			}
+			throw new IllegalStateException(
+					"Publisher of type <" + publisher.getClass().getSimpleName()
+							+ "> are not supported by this operator");
+		};
+	}
+
+	/**
+	 * The limit currently in effect for the given operation.
+	 */
+	public Duration timeout(String name) {
+		Duration configured = this.configured(name);
+		BlogProperties.TimeLimit.Adaptive adaptive = this.props.getAdaptive();
+		if (!adaptive.isEnabled()) {
+			return configured;
+		}
+		Timer latency = this.latency(name);
+		if (latency.count() < adaptive.getMinSamples()) {
+			return configured;
+		}
+		for (ValueAtPercentile value : latency.takeSnapshot().percentileValues()) {
+			if (value.percentile() == adaptive.getPercentile()) {
+				long nanos = (long) (value.value(TimeUnit.NANOSECONDS)
+						* adaptive.getMultiplier());
+				Duration derived = Duration.ofNanos(nanos);
+				if (derived.compareTo(adaptive.getFloor()) < 0) {
+					return adaptive.getFloor();
+				}
+				if (derived.compareTo(adaptive.getCeiling()) > 0) {
+					return adaptive.getCeiling();
+				}
+				return derived;
+			}
+		}
+		return configured;
+	}
+
+	/**
+	 * The largest limit a single attempt of the given operation can get.
+	 */
+	public Duration upperBound(String name) {
+		Duration configured = this.configured(name);
+		BlogProperties.TimeLimit.Adaptive adaptive = this.props.getAdaptive();
+		if (adaptive.isEnabled() && adaptive.getCeiling().compareTo(configured) > 0) {
+			return adaptive.getCeiling();
+		}
+		return configured;
+	}
+
+	/**
+	 * The limit of a whole call including its retries, which is what the circuit
+	 * breaker time limiter should allow. It stays {@code blog.circuit-breaker-timeout}
+	 * unless the operation has its own limit, which opts into every attempt at its
+	 * {@link #upperBound(String)} plus the longest backoff before each retry.
+	 */
+	public Duration overallLimit(String name) {
+		Duration limit = this.upperBound(name)
+				.multipliedBy(this.retry.getMax() + 1).plus(this.backoffs());
+		if (this.props.getOperations().containsKey(name)
+				|| limit.compareTo(this.defaultTimeout) < 0) {
+			return limit;
+		}
+		return this.defaultTimeout;
+	}
+
+	/**
+	 * Operations without their own limit share {@code blog.circuit-breaker-timeout}
+	 * between all attempts, after the backoffs are taken out.
+	 */
+	private Duration configured(String name) {
+		Duration configured = this.props.getOperations().get(name);
+		if (configured != null) {
+			return configured;
+		}
+		Duration share = this.defaultTimeout.minus(this.backoffs())
+				.dividedBy(this.retry.getMax() + 1);
+		return share.isNegative() || share.isZero()
+				? this.defaultTimeout.dividedBy(this.retry.getMax() + 1)
+				: share;
+	}
+
+	private Duration backoffs() {
+		long first = this.retry.getFirstBackoff().toNanos();
+		long max = this.retry.getMaxBackoff().toNanos();
+		long total = 0;
+		for (int i = 1; i <= this.retry.getMax(); i++) {
+			double backoff = first * Math.pow(this.retry.getFactor(), i - 1)
+					* (1 + this.retry.getJitter());
+			total += (long) Math.min(backoff, max);
+		}
+		return Duration.ofNanos(total);
+	}
+
+	Timer latency(String name) {
+		return this.latencies.computeIfAbsent(name, key -> {
+			TimeGauge.builder("blog.time-limit.timeout", this, TimeUnit.MILLISECONDS,
+					t -> t.timeout(key).toMillis()) //
+					.description("Time limit currently applied to the operation") //
+					.tag("name", key) //
+					.register(this.meterRegistry);
+			return Timer.builder("blog.time-limit.latency") //
+					.description("Latency of successful calls within the time limit") //
+					.tag("name", key) //
+					.publishPercentiles(this.props.getAdaptive().getPercentile()) //
+					.register(this.meterRegistry);
+		});
+	}
+}
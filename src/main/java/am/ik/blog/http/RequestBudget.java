@@ -0,0 +1,42 @@
+package am.ik.blog.http;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Allows extra requests (hedges, retries) only as a fraction of the regular ones:
+ * every regular request deposits {@code ratio} of a token, up to {@code maxTokens},
+ * and every extra request withdraws a whole token.
+ */
+public class RequestBudget {
+	private static final long SCALE = 1000;
+	private final long deposit;
+	private final long capacity;
+	private final AtomicLong balance;
+
+	public RequestBudget(double ratio, int maxTokens) {
+		this.deposit = Math.round(ratio * SCALE);
+		this.capacity = maxTokens * SCALE;
+		this.balance = new AtomicLong(this.capacity);
+	}
+
+	public void deposit() {
+		this.balance.accumulateAndGet(this.deposit,
+				(current, x) -> Math.min(this.capacity, current + x));
+	}
+
+	public boolean tryWithdraw() {
+		while (true) {
+			long current = this.balance.get();
+			if (current < SCALE) {
+				return false;
+			}
+			if (this.balance.compareAndSet(current, current - SCALE)) {
+				return true;
+			}
+		}
+	}
+
+	public double available() {
+		return (double) this.balance.get() / SCALE;
+	}
+}
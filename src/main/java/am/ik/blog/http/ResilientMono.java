@@ -0,0 +1,345 @@
+package am.ik.blog.http;
+
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerOpenException;
+import io.micrometer.core.instrument.Timer;
+import org.reactivestreams.Subscription;
+import reactor.core.CoreSubscriber;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoOperator;
+import reactor.core.publisher.Operators;
+import reactor.core.scheduler.Scheduler;
+import reactor.retry.RetryExhaustedException;
+import reactor.util.context.Context;
+
+/**
+ * Time limit, retry and circuit breaker of a single value call in one operator. It
+ * behaves like {@code timeLimit -> retry -> circuit breaker} of the {@link Decorator}
+ * but each subscription allocates one subscriber plus one per attempt, instead of a
+ * subscriber, a processor and a timer per operator of the chain.
+ */
+final class ResilientMono<T> extends MonoOperator<T, T> {
+	private final Policy policy;
+
+	ResilientMono(Mono<? extends T> source, Policy policy) {
+		super(source);
+		this.policy = policy;
+	}
+
+	@Override
+	public void subscribe(CoreSubscriber<? super T> actual) {
+		ResilientSubscriber<T> subscriber = new ResilientSubscriber<>(actual,
+				this.source, this.policy);
+		actual.onSubscribe(subscriber);
+		subscriber.start();
+	}
+
+	static final class Policy {
+		final String name;
+		final CircuitBreaker circuitBreaker;
+		final Retryer retryer;
+		final OperationTimeouts timeouts;
+		final RequestBudget budget;
+		final Timer latency;
+		final Scheduler scheduler;
+
+		Policy(String name, CircuitBreaker circuitBreaker, Retryer retryer,
+				OperationTimeouts timeouts, Scheduler scheduler) {
+			this.name = name;
+			this.circuitBreaker = circuitBreaker;
+			this.retryer = retryer;
+			this.timeouts = timeouts;
+			this.budget = retryer.budget(name);
+			this.latency = timeouts.latency(name);
+			this.scheduler = scheduler;
+		}
+	}
+
+	static final class ResilientSubscriber<T> implements Subscription {
+		private static final int HAS_REQUEST = 1;
+		private static final int HAS_VALUE = 2;
+		private final CoreSubscriber<? super T> actual;
+		private final Mono<? extends T> source;
+		private final Policy policy;
+		private final long start = System.nanoTime();
+		private final long deadline;
+		private final AtomicInteger state = new AtomicInteger();
+		private final AtomicBoolean terminated = new AtomicBoolean(false);
+		private volatile Attempt current;
+		private volatile Disposable backoff;
+		private volatile boolean cancelled;
+		private volatile boolean admitted;
+		private int iteration;
+		private T value;
+
+		ResilientSubscriber(CoreSubscriber<? super T> actual, Mono<? extends T> source,
+				Policy policy) {
+			this.actual = actual;
+			this.source = source;
+			this.policy = policy;
+			this.deadline = this.start
+					+ policy.timeouts.overallLimit(policy.name).toNanos();
+		}
+
+		void start() {
+			if (this.cancelled) {
+				return;
+			}
+			if (!this.policy.circuitBreaker.isCallPermitted()) {
+				if (this.terminated.compareAndSet(false, true)) {
+					this.actual.onError(new CircuitBreakerOpenException(String
+							.format("CircuitBreaker '%s' is open", this.policy.name)));
+				}
+				return;
+			}
+			this.admitted = true;
+			if (this.cancelled) {
+				this.abandon();
+				return;
+			}
+			this.attempt();
+		}
+
+		void attempt() {
+			if (this.cancelled) {
+				return;
+			}
+			long now = System.nanoTime();
+			long remaining = this.deadline - now;
+			if (remaining <= 0) {
+				this.fail(timeout(this.policy.timeouts.overallLimit(this.policy.name)));
+				return;
+			}
+			Duration timeout = this.policy.timeouts.timeout(this.policy.name);
+			Attempt attempt = new Attempt(now, timeout);
+			this.current = attempt;
+			// cancel() may have run before it could see this attempt
+			if (this.cancelled) {
+				attempt.cancel();
+				return;
+			}
+			attempt.timer = this.policy.scheduler.schedule(attempt::timeout,
+					Math.min(timeout.toNanos(), remaining), TimeUnit.NANOSECONDS);
+			this.source.subscribe(attempt);
+		}
+
+		void succeeded(Attempt attempt, T value) {
+			long now = System.nanoTime();
+			this.policy.latency.record(now - attempt.start, TimeUnit.NANOSECONDS);
+			if (!this.terminated.compareAndSet(false, true)) {
+				return;
+			}
+			this.policy.budget.deposit();
+			this.policy.circuitBreaker.onSuccess(now - this.start);
+			if (value == null) {
+				this.actual.onComplete();
+				return;
+			}
+			this.value = value;
+			for (;;) {
+				int s = this.state.get();
+				if (this.state.compareAndSet(s, s | HAS_VALUE)) {
+					if ((s & HAS_REQUEST) != 0) {
+						this.emit();
+					}
+					return;
+				}
+			}
+		}
+
+		void failed(Throwable e) {
+			if (this.cancelled) {
+				return;
+			}
+			if (!Retryer.retryable.test(e)) {
+				this.fail(e);
+			}
+			else if (this.iteration >= this.policy.retryer.maxRetries()) {
+				this.fail(new RetryExhaustedException(e));
+			}
+			else if (System.nanoTime() - this.deadline >= 0) {
+				this.fail(timeout(this.policy.timeouts.overallLimit(this.policy.name)));
+			}
+			else if (!this.policy.retryer.withdraw(this.policy.name)) {
+				this.fail(e);
+			}
+			else {
+				this.iteration++;
+				this.policy.retryer.onRetry(this.policy.name, this.iteration, e,
+						"iteration=" + this.iteration + ", exception=" + e);
+				this.backoff = this.policy.scheduler.schedule(this::attempt,
+						this.policy.retryer.backoff(this.iteration).toNanos(),
+						TimeUnit.NANOSECONDS);
+			}
+		}
+
+		void fail(Throwable e) {
+			if (!this.terminated.compareAndSet(false, true)) {
+				Operators.onErrorDropped(e, this.actual.currentContext());
+				return;
+			}
+			this.policy.circuitBreaker.onError(System.nanoTime() - this.start, e);
+			this.actual.onError(e);
+		}
+
+		void emit() {
+			T value = this.value;
+			this.value = null;
+			if (!this.cancelled) {
+				this.actual.onNext(value);
+				this.actual.onComplete();
+			}
+		}
+
+		@Override
+		public void request(long n) {
+			if (!Operators.validate(n)) {
+				return;
+			}
+			for (;;) {
+				int s = this.state.get();
+				if ((s & HAS_REQUEST) != 0) {
+					return;
+				}
+				if (this.state.compareAndSet(s, s | HAS_REQUEST)) {
+					if ((s & HAS_VALUE) != 0) {
+						this.emit();
+					}
+					return;
+				}
+			}
+		}
+
+		@Override
+		public void cancel() {
+			this.cancelled = true;
+			Attempt attempt = this.current;
+			if (attempt != null) {
+				attempt.cancel();
+			}
+			Disposable backoff = this.backoff;
+			if (backoff != null) {
+				backoff.dispose();
+			}
+			if (this.admitted) {
+				this.abandon();
+			}
+		}
+
+		/**
+		 * Gives the circuit breaker an outcome for an admitted call that was
+		 * cancelled, so that it does not keep a half-open slot. The breaker ignores
+		 * cancellations, as they are not retryable.
+		 */
+		void abandon() {
+			if (this.terminated.compareAndSet(false, true)) {
+				this.policy.circuitBreaker.onError(System.nanoTime() - this.start,
+						new CancellationException(
+								"Call of '" + this.policy.name + "' was cancelled"));
+			}
+		}
+
+		static TimeoutException timeout(Duration timeout) {
+			return new TimeoutException("Did not observe any item or terminal signal within "
+					+ timeout.toMillis() + "ms (and no fallback has been configured)");
+		}
+
+		/**
+		 * Subscriber of a single try. Signals arriving after it timed out or was
+		 * cancelled are dropped, so a late response cannot race the next attempt.
+		 */
+		final class Attempt implements CoreSubscriber<T> {
+			private final long start;
+			private final Duration timeout;
+			private final AtomicBoolean done = new AtomicBoolean(false);
+			private volatile Subscription upstream;
+			private volatile Disposable timer;
+			private T value;
+
+			Attempt(long start, Duration timeout) {
+				this.start = start;
+				this.timeout = timeout;
+			}
+
+			@Override
+			public Context currentContext() {
+				return actual.currentContext();
+			}
+
+			@Override
+			public void onSubscribe(Subscription s) {
+				if (Operators.validate(this.upstream, s)) {
+					this.upstream = s;
+					if (this.done.get()) {
+						s.cancel();
+					}
+					else {
+						s.request(Long.MAX_VALUE);
+					}
+				}
+			}
+
+			@Override
+			public void onNext(T t) {
+				if (this.done.get()) {
+					Operators.onNextDropped(t, this.currentContext());
+					return;
+				}
+				this.value = t;
+			}
+
+			@Override
+			public void onError(Throwable t) {
+				if (!this.done.compareAndSet(false, true)) {
+					Operators.onErrorDropped(t, this.currentContext());
+					return;
+				}
+				this.timer.dispose();
+				failed(t);
+			}
+
+			@Override
+			public void onComplete() {
+				if (!this.done.compareAndSet(false, true)) {
+					return;
+				}
+				this.timer.dispose();
+				T value = this.value;
+				this.value = null;
+				succeeded(this, value);
+			}
+
+			void timeout() {
+				if (this.done.compareAndSet(false, true)) {
+					this.cancelUpstream();
+					failed(ResilientSubscriber.timeout(this.timeout));
+				}
+			}
+
+			void cancel() {
+				if (this.done.compareAndSet(false, true)) {
+					Disposable timer = this.timer;
+					if (timer != null) {
+						timer.dispose();
+					}
+					this.cancelUpstream();
+				}
+			}
+
+			private void cancelUpstream() {
+				Subscription s = this.upstream;
+				if (s != null) {
+					s.cancel();
+				}
+			}
+		}
+	}
+}
@@ -1,26 +1,44 @@
 package am.ik.blog.http;
 
+import java.time.Duration;
 import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.function.Function;
 import java.util.function.Predicate;
 
 import am.ik.blog.BlogProperties;
 import brave.Span;
 import brave.Tracer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.reactivestreams.Publisher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.retry.Backoff;
+import reactor.retry.Jitter;
 import reactor.retry.Retry;
 
 import org.springframework.web.reactive.function.client.WebClientResponseException;
 
+/**
+ * Retries with exponential backoff and jitter so that concurrent callers spread out
+ * instead of retrying in lockstep. Retries of each operation are capped by a
+ * {@link RequestBudget} fed by its successful calls, so a degraded upstream does not
+ * get multiplied load.
+ */
 public class Retryer {
 	private static final Logger log = LoggerFactory.getLogger(Retryer.class);
 	public static final Predicate<Throwable> retryable = e -> {
-		if (e instanceof WebClientResponseException) {
+		if (e instanceof ConcurrencyLimitExceededException
+				|| e instanceof CancellationException) {
+			return false;
+		}
+		else if (e instanceof WebClientResponseException) {
 			return !((WebClientResponseException) e).getStatusCode().is4xxClientError();
 		}
 		else {
@@ -29,39 +47,98 @@ public class Retryer {
 	};
 
 	private final Tracer tracer;
+	private final BlogProperties.Retry props;
+	private final MeterRegistry meterRegistry;
+	private final ConcurrentMap<String, RequestBudget> budgets = new ConcurrentHashMap<>();
 	private final Retry<String> retry;
 
-	public Retryer(Tracer tracer, BlogProperties.Retry props) {
+	public Retryer(Tracer tracer, BlogProperties.Retry props,
+			MeterRegistry meterRegistry) {
 		this.tracer = tracer;
-		this.retry = Retry.<String>onlyIf(ctx -> retryable.test(ctx.exception())) //
+		this.props = props;
+		this.meterRegistry = meterRegistry;
+		// the predicate runs before retryMax is checked, so an exhausted call must not
+		// withdraw a token for a retry that never happens
+		this.retry = Retry.<String>onlyIf(ctx -> retryable.test(ctx.exception())
+				&& ctx.iteration() <= props.getMax()
+				&& this.withdraw(ctx.applicationContext())) //
 				.retryMax(props.getMax()) //
-				.backoff(Backoff.fixed(props.getFixedBackoff())) //
-				.doOnRetry(ctx -> {
-					Span span = this.tracer.currentSpan();
-					span.tag("retry.iteration", String.valueOf(ctx.iteration()));
-					Throwable exception = ctx.exception();
-					if (exception != null) {
-						span.tag("retry.exception", exception.getClass().getName());
-						span.tag("retry.message",
-								Objects.toString(exception.getMessage(), ""));
-					}
-					log.warn("Retrying name={} {}", ctx.applicationContext(), ctx);
-				});
+				.backoff(Backoff.exponential(props.getFirstBackoff(),
+						props.getMaxBackoff(), props.getFactor(), false)) //
+				.jitter(Jitter.random(props.getJitter())) //
+				.doOnRetry(ctx -> this.onRetry(ctx.applicationContext(),
+						ctx.iteration(), ctx.exception(), ctx));
 	}
 
 	public <T> Function<Publisher<T>, Publisher<T>> retry(String name) {
+		RequestBudget budget = this.budget(name);
+		Retry<String> retry = this.retry.withApplicationContext(name);
 		return publisher -> {
 			if (publisher instanceof Mono) {
-				return ((Mono<T>) publisher)
-						.retryWhen(retry.withApplicationContext(name));
+				return ((Mono<T>) publisher).retryWhen(retry)
+						.doOnSuccess(x -> budget.deposit());
 			}
 			else if (publisher instanceof Flux) {
-				return ((Flux<T>) publisher)
-						.retryWhen(retry.withApplicationContext(name));
+				return ((Flux<T>) publisher).retryWhen(retry)
+						.doOnComplete(budget::deposit);
 			}
 			throw new IllegalStateException(
 					"Publisher of type <" + publisher.getClass().getSimpleName()
 							+ "> are not supported by this operator");
 		};
 	}
+
+	int maxRetries() {
+		return this.props.getMax();
+	}
+
+	/**
+	 * Exponential backoff with random jitter for the given retry, same as the one
+	 * applied by {@link #retry(String)}.
+	 */
+	Duration backoff(long iteration) {
+		long first = this.props.getFirstBackoff().toNanos();
+		long max = this.props.getMaxBackoff().toNanos();
+		double exponential = first * Math.pow(this.props.getFactor(), iteration - 1);
+		long backoff = (long) Math.min(exponential, max);
+		long offset = (long) (backoff * this.props.getJitter());
+		long jittered = backoff
+				+ ThreadLocalRandom.current().nextLong(-offset, offset + 1);
+		return Duration.ofNanos(Math.max(first, Math.min(jittered, max)));
+	}
+
+	void onRetry(String name, long iteration, Throwable exception, Object context) {
+		Span span = this.tracer.currentSpan();
+		if (span != null) {
+			span.tag("retry.iteration", String.valueOf(iteration));
+			if (exception != null) {
+				span.tag("retry.exception", exception.getClass().getName());
+				span.tag("retry.message", Objects.toString(exception.getMessage(), ""));
+			}
+		}
+		log.warn("Retrying name={} {}", name, context);
+	}
+
+	boolean withdraw(String name) {
+		if (this.budget(name).tryWithdraw()) {
+			return true;
+		}
+		log.warn("Retry budget exhausted name={}", name);
+		this.meterRegistry.counter("blog.retry.budget.exhausted", "name", name)
+				.increment();
+		return false;
+	}
+
+	RequestBudget budget(String name) {
+		return this.budgets.computeIfAbsent(name, key -> {
+			RequestBudget budget = new RequestBudget(this.props.getBudgetRatio(),
+					this.props.getMaxBudget());
+			Gauge.builder("blog.retry.budget.available", budget,
+					RequestBudget::available) //
+					.description("Retries currently allowed by the retry budget") //
+					.tag("name", key) //
+					.register(this.meterRegistry);
+			return budget;
+		});
+	}
 }
@@ -0,0 +1,60 @@
+package am.ik.blog.http;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Mono;
+
+/**
+ * Shares one upstream call between concurrent lookups of the same key. The upstream
+ * is only cancelled once every subscriber has cancelled, and the key is released as
+ * soon as the call terminates so the next lookup goes upstream again.
+ */
+public class SingleFlight<K, V> {
+	private final ConcurrentMap<K, Mono<V>> inFlight = new ConcurrentHashMap<>();
+	private final Counter coalesced;
+
+	public SingleFlight(String name, MeterRegistry meterRegistry) {
+		this.coalesced = Counter.builder("blog.upstream.coalesced") //
+				.description("Number of upstream calls joined to an in-flight one") //
+				.tag("name", name) //
+				.register(meterRegistry);
+	}
+
+	public Mono<V> execute(K key, Supplier<Mono<V>> upstream) {
+		return Mono.defer(() -> {
+			Mono<V> flight = this.inFlight.get(key);
+			if (flight != null) {
+				this.coalesced.increment();
+				return flight;
+			}
+			Mono<V> created = this.share(key, upstream);
+			flight = this.inFlight.putIfAbsent(key, created);
+			if (flight != null) {
+				this.coalesced.increment();
+				return flight;
+			}
+			return created;
+		});
+	}
+
+	public int size() {
+		return this.inFlight.size();
+	}
+
+	private Mono<V> share(K key, Supplier<Mono<V>> upstream) {
+		AtomicReference<Mono<V>> self = new AtomicReference<>();
+		Mono<V> shared = Mono.defer(upstream) //
+				.doFinally(signal -> this.inFlight.remove(key, self.get())) //
+				.flux() //
+				.publish() //
+				.refCount() //
+				.next();
+		self.set(shared);
+		return shared;
+	}
+}
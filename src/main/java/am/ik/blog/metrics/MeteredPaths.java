@@ -0,0 +1,14 @@
+package am.ik.blog.metrics;
+
+/**
+ * Requests left out of the per-request metrics: actuator endpoints and static assets.
+ */
+final class MeteredPaths {
+	private MeteredPaths() {
+	}
+
+	static boolean isIgnored(String path) {
+		return path.startsWith("/actuator/") || path.endsWith(".png")
+				|| path.endsWith(".js") || path.endsWith(".css");
+	}
+}
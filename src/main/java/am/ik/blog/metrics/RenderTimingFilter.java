@@ -0,0 +1,78 @@
+package am.ik.blog.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.HandlerMapping;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+
+/**
+ * Records time-to-first-byte separately from the total time to write a page, so the
+ * benefit of streamed rendering is visible next to {@code http.server.requests}.
+ */
+@Component
+public class RenderTimingFilter implements WebFilter {
+	private final MeterRegistry meterRegistry;
+
+	public RenderTimingFilter(MeterRegistry meterRegistry) {
+		this.meterRegistry = meterRegistry;
+	}
+
+	@Override
+	public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+		String path = exchange.getRequest().getPath().value();
+		if (MeteredPaths.isIgnored(path)) {
+			return chain.filter(exchange);
+		}
+		long start = System.nanoTime();
+		AtomicLong firstByte = new AtomicLong();
+		ServerHttpResponse response = new ServerHttpResponseDecorator(
+				exchange.getResponse()) {
+			@Override
+			public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+				return super.writeWith(Flux.from(body)
+						.doOnNext(b -> firstByte.compareAndSet(0, System.nanoTime())));
+			}
+
+			@Override
+			public Mono<Void> writeAndFlushWith(
+					Publisher<? extends Publisher<? extends DataBuffer>> body) {
+				return super.writeAndFlushWith(Flux.from(body)
+						.map(chunk -> Flux.from(chunk).doOnNext(
+								b -> firstByte.compareAndSet(0, System.nanoTime()))));
+			}
+		};
+		return chain.filter(exchange.mutate().response(response).build())
+				.doFinally(signal -> {
+					long first = firstByte.get();
+					if (first == 0) {
+						return;
+					}
+					String uri = exchange.getAttributeOrDefault(
+							HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "UNKNOWN")
+							.toString();
+					timer("blog.render.first-byte", uri).record(first - start,
+							TimeUnit.NANOSECONDS);
+					timer("blog.render.total", uri).record(System.nanoTime() - start,
+							TimeUnit.NANOSECONDS);
+				});
+	}
+
+	private Timer timer(String name, String uri) {
+		return Timer.builder(name) //
+				.tag("uri", uri) //
+				.register(this.meterRegistry);
+	}
+}
@@ -29,7 +29,7 @@ public class UserAgentMetricsFilter implements WebFilter {
 	@Override
 	public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
 		String path = exchange.getRequest().getPath().value();
-		if (!isIgnored(path)) {
+		if (!MeteredPaths.isIgnored(path)) {
 			String userAgent = exchange.getRequest().getHeaders()
 					.getFirst(HttpHeaders.USER_AGENT);
 			Map<String, String> r = Classifier.parse(userAgent);
@@ -46,9 +46,4 @@ public class UserAgentMetricsFilter implements WebFilter {
 		}
 		return chain.filter(exchange);
 	}
-
-	boolean isIgnored(String path) {
-		return path.startsWith("/actuator/") || path.endsWith(".png")
-				|| path.endsWith(".js") || path.endsWith(".css");
-	}
 }
@@ -0,0 +1,257 @@
+package am.ik.blog.page;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+import am.ik.blog.BlogClient;
+import am.ik.blog.BlogProperties;
+import am.ik.blog.BlogUiController;
+import am.ik.blog.BlogUiController.ContentChecker;
+import am.ik.blog.model.Entry;
+import am.ik.blog.resource.AcceptEncoding;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.HandlerMapping;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import static org.springframework.http.HttpHeaders.ACCEPT_ENCODING;
+import static org.springframework.http.HttpHeaders.ACCEPT_LANGUAGE;
+import static org.springframework.http.HttpHeaders.CACHE_CONTROL;
+import static org.springframework.http.HttpHeaders.CONTENT_ENCODING;
+import static org.springframework.http.HttpHeaders.VARY;
+
+/**
+ * Keeps the final html of entry pages, identity and gzip, keyed by entry revision,
+ * locale and {@link ContentChecker} state, and writes it straight back on the next
+ * request instead of running the view again. The entry is still looked up (and
+ * revalidated) on every request; the started lookup is handed to the controller so
+ * a miss does not fetch it twice.
+ */
+@Component
+public class EntryPageCacheFilter implements WebFilter {
+	private static final Pattern ENTRY_PATH = Pattern.compile("^/entries/([0-9]+)$");
+	private static final PathPattern ENTRY_PATTERN = new PathPatternParser()
+			.parse("/entries/{entryId}");
+	private final BlogClient blogClient;
+	private final boolean enabled;
+	private final Cache<PageKey, Page> pages;
+
+	public EntryPageCacheFilter(BlogClient blogClient, BlogProperties props,
+			MeterRegistry meterRegistry) {
+		BlogProperties.PageCache pageCache = props.getPageCache();
+		this.blogClient = blogClient;
+		this.enabled = pageCache.isEnabled();
+		this.pages = CaffeineCacheMetrics.monitor(meterRegistry, Caffeine.newBuilder() //
+				.maximumWeight(pageCache.getMaximumWeight().toBytes()) //
+				.weigher((PageKey key, Page page) -> page.weight()) //
+				.recordStats() //
+				.build(), "entryPageCache");
+	}
+
+	@Override
+	public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+		ServerHttpRequest request = exchange.getRequest();
+		Matcher matcher = ENTRY_PATH.matcher(request.getPath().value());
+		if (!this.enabled || request.getMethod() != HttpMethod.GET
+				|| !matcher.matches()) {
+			return chain.filter(exchange);
+		}
+		Mono<Entry> entry = this.blogClient.findById(Long.valueOf(matcher.group(1)))
+				.cache();
+		exchange.getAttributes().put(BlogUiController.ENTRY_ATTRIBUTE, entry);
+		return entry //
+				.map(e -> PageKey.of(e, exchange.getLocaleContext().getLocale())) //
+				.onErrorResume(e -> Mono.empty()) //
+				.defaultIfEmpty(Optional.empty()) //
+				.flatMap(key -> {
+					if (!key.isPresent()) {
+						return chain.filter(exchange);
+					}
+					exchange.getResponse().getHeaders().set(VARY,
+							ACCEPT_LANGUAGE + ", " + ACCEPT_ENCODING);
+					Page page = this.pages.getIfPresent(key.get());
+					if (page != null) {
+						// no handler runs, tag the metrics of the request as it would
+						exchange.getAttributes().put(
+								HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE,
+								ENTRY_PATTERN);
+						return this.write(exchange, key.get(), page);
+					}
+					return chain.filter(exchange.mutate()
+							.response(new CapturingResponse(exchange, key.get()))
+							.build());
+				});
+	}
+
+	public void clear() {
+		this.pages.invalidateAll();
+	}
+
+	private Mono<Void> write(ServerWebExchange exchange, PageKey key, Page page) {
+		ServerHttpResponse response = exchange.getResponse();
+		HttpHeaders headers = response.getHeaders();
+		headers.set(CACHE_CONTROL, "max-age=" + TimeUnit.HOURS.toSeconds(3));
+		if (exchange.checkNotModified(key.updated)) {
+			return response.setComplete();
+		}
+		byte[] body = page.identity;
+		if (AcceptEncoding.acceptsGzip(exchange.getRequest().getHeaders())) {
+			headers.set(CONTENT_ENCODING, "gzip");
+			body = page.gzip;
+		}
+		headers.set(HttpHeaders.CONTENT_TYPE, page.contentType);
+		headers.setContentLength(body.length);
+		return response.writeWith(Mono.just(response.bufferFactory().wrap(body)));
+	}
+
+	static byte[] gzip(byte[] content) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(content.length / 4);
+		try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+			gzip.write(content);
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return out.toByteArray();
+	}
+
+	class CapturingResponse extends ServerHttpResponseDecorator {
+		private final PageKey key;
+
+		CapturingResponse(ServerWebExchange exchange, PageKey key) {
+			super(exchange.getResponse());
+			this.key = key;
+		}
+
+		@Override
+		public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+			HttpStatus status = this.getStatusCode();
+			if ((status != null && status != HttpStatus.OK)
+					|| this.getHeaders().containsKey(CONTENT_ENCODING)) {
+				return super.writeWith(body);
+			}
+			return DataBufferUtils.join(body) //
+					.flatMap(buffer -> {
+						byte[] identity = new byte[buffer.readableByteCount()];
+						buffer.read(identity);
+						DataBufferUtils.release(buffer);
+						String contentType = this.getHeaders()
+								.getFirst(HttpHeaders.CONTENT_TYPE);
+						if (contentType != null) {
+							pages.put(this.key,
+									new Page(contentType, identity, gzip(identity)));
+						}
+						return super.writeWith(
+								Mono.just(this.bufferFactory().wrap(identity)));
+					}) //
+					.switchIfEmpty(Mono.defer(this::setComplete));
+		}
+
+		@Override
+		public Mono<Void> writeAndFlushWith(
+				Publisher<? extends Publisher<? extends DataBuffer>> body) {
+			return this.writeWith(Flux.from(body).concatMap(Flux::from));
+		}
+	}
+
+	static final class Page {
+		private final String contentType;
+		private final byte[] identity;
+		private final byte[] gzip;
+
+		Page(String contentType, byte[] identity, byte[] gzip) {
+			this.contentType = contentType;
+			this.identity = identity;
+			this.gzip = gzip;
+		}
+
+		int weight() {
+			return 64 + this.identity.length + this.gzip.length;
+		}
+	}
+
+	static final class PageKey {
+		private final Long entryId;
+		private final Instant updated;
+		private final String language;
+		private final String checker;
+
+		private PageKey(Long entryId, Instant updated, String language,
+				String checker) {
+			this.entryId = entryId;
+			this.updated = updated;
+			this.language = language;
+			this.checker = checker;
+		}
+
+		static Optional<PageKey> of(Entry entry, Locale locale) {
+			if (entry.getEntryId() == null || entry.getUpdated() == null
+					|| entry.getUpdated().getDate() == null) {
+				return Optional.empty();
+			}
+			return Optional.of(new PageKey(entry.getEntryId(),
+					entry.getUpdated().getDate().toInstant(),
+					locale == null ? "" : locale.getLanguage(), checker(entry)));
+		}
+
+		static String checker(Entry entry) {
+			ContentChecker checker = new ContentChecker(entry);
+			if (checker.isQuiteDanger()) {
+				return "quite-danger";
+			}
+			if (checker.isDanger()) {
+				return "danger";
+			}
+			if (checker.isWarning()) {
+				return "warning";
+			}
+			return checker.isCaution() ? "caution" : "none";
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (o == null || getClass() != o.getClass()) {
+				return false;
+			}
+			PageKey key = (PageKey) o;
+			return entryId.equals(key.entryId) && updated.equals(key.updated)
+					&& language.equals(key.language) && checker.equals(key.checker);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(entryId, updated, language, checker);
+		}
+	}
+}
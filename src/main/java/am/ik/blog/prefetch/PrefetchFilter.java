@@ -0,0 +1,121 @@
+package am.ik.blog.prefetch;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import am.ik.blog.BlogClient;
+import am.ik.blog.BlogProperties;
+import am.ik.blog.renderer.EntryRenderer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Mono;
+
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+
+import static org.springframework.http.HttpHeaders.CACHE_CONTROL;
+
+/**
+ * Answers the index page's hover prefetches ({@code ?prefetch} or
+ * {@code Sec-Purpose: prefetch}) with {@code 204} right away and only warms the entry
+ * and rendered html caches in the background, instead of rendering a page nobody
+ * reads.
+ */
+public class PrefetchFilter implements WebFilter, Ordered {
+	private static final Logger log = LoggerFactory.getLogger(PrefetchFilter.class);
+	private static final Pattern ENTRY_PATH = Pattern.compile("^/entries/([0-9]+)/?$");
+	static final String SEC_PURPOSE = "Sec-Purpose";
+	static final String PURPOSE = "Purpose";
+	private final BlogClient blogClient;
+	private final EntryRenderer entryRenderer;
+	private final TokenBucket tokenBucket;
+	private final Counter accepted;
+	private final Counter rateLimited;
+	private final Counter warmed;
+	private final Counter failed;
+
+	public PrefetchFilter(BlogClient blogClient, EntryRenderer entryRenderer,
+			BlogProperties props, MeterRegistry meterRegistry) {
+		BlogProperties.Prefetch prefetch = props.getPrefetch();
+		this.blogClient = blogClient;
+		this.entryRenderer = entryRenderer;
+		this.tokenBucket = new TokenBucket(prefetch.getPermitsPerSecond(),
+				prefetch.getBurst());
+		this.accepted = requests(meterRegistry, "accepted");
+		this.rateLimited = requests(meterRegistry, "rate_limited");
+		this.warmed = warmups(meterRegistry, "success");
+		this.failed = warmups(meterRegistry, "failure");
+	}
+
+	@Override
+	public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+		ServerHttpRequest request = exchange.getRequest();
+		if (request.getMethod() != HttpMethod.GET || !isPrefetch(request)) {
+			return chain.filter(exchange);
+		}
+		Matcher matcher = ENTRY_PATH.matcher(request.getPath().value());
+		if (!matcher.matches()) {
+			return chain.filter(exchange);
+		}
+		ServerHttpResponse response = exchange.getResponse();
+		response.getHeaders().set(CACHE_CONTROL, "no-store");
+		if (!this.tokenBucket.tryAcquire()) {
+			this.rateLimited.increment();
+			response.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+			return response.setComplete();
+		}
+		this.accepted.increment();
+		this.warm(Long.valueOf(matcher.group(1)));
+		response.setStatusCode(HttpStatus.NO_CONTENT);
+		return response.setComplete();
+	}
+
+	@Override
+	public int getOrder() {
+		return Ordered.HIGHEST_PRECEDENCE + 10;
+	}
+
+	void warm(Long entryId) {
+		this.blogClient.findById(entryId) //
+				.doOnNext(this.entryRenderer::render) //
+				.subscribe(entry -> this.warmed.increment(), e -> {
+					log.debug("Failed to prefetch entryId={}", entryId, e);
+					this.failed.increment();
+				});
+	}
+
+	static boolean isPrefetch(ServerHttpRequest request) {
+		if (request.getQueryParams().containsKey("prefetch")) {
+			return true;
+		}
+		String purpose = request.getHeaders().getFirst(SEC_PURPOSE);
+		if (purpose == null) {
+			purpose = request.getHeaders().getFirst(PURPOSE);
+		}
+		// a prerender needs the full page, only plain prefetches can be answered early
+		return purpose != null && purpose.contains("prefetch")
+				&& !purpose.contains("prerender");
+	}
+
+	private static Counter requests(MeterRegistry meterRegistry, String result) {
+		return Counter.builder("blog.prefetch.requests") //
+				.description("Number of prefetch requests answered early") //
+				.tag("result", result) //
+				.register(meterRegistry);
+	}
+
+	private static Counter warmups(MeterRegistry meterRegistry, String result) {
+		return Counter.builder("blog.prefetch.warmups") //
+				.description("Number of entries warmed by prefetch requests") //
+				.tag("result", result) //
+				.register(meterRegistry);
+	}
+}
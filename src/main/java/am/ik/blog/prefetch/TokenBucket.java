@@ -0,0 +1,37 @@
+package am.ik.blog.prefetch;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket refilled continuously at {@code permitsPerSecond} up to
+ * {@code burst} tokens.
+ */
+class TokenBucket {
+	private final long capacity;
+	private final long nanosPerPermit;
+	private final LongSupplier nanoClock;
+	private long nextFree;
+
+	TokenBucket(int permitsPerSecond, int burst) {
+		this(permitsPerSecond, burst, System::nanoTime);
+	}
+
+	TokenBucket(int permitsPerSecond, int burst, LongSupplier nanoClock) {
+		this.capacity = Math.max(1, burst);
+		this.nanosPerPermit = TimeUnit.SECONDS.toNanos(1) / Math.max(1, permitsPerSecond);
+		this.nanoClock = nanoClock;
+		this.nextFree = nanoClock.getAsLong() - this.capacity * this.nanosPerPermit;
+	}
+
+	synchronized boolean tryAcquire() {
+		long now = this.nanoClock.getAsLong();
+		long earliest = now - this.capacity * this.nanosPerPermit;
+		long next = Math.max(this.nextFree, earliest);
+		if (next > now - this.nanosPerPermit) {
+			return false;
+		}
+		this.nextFree = next + this.nanosPerPermit;
+		return true;
+	}
+}
@@ -1,7 +1,18 @@
 package am.ik.blog.renderer;
 
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.Objects;
+
+import am.ik.blog.BlogProperties;
+import am.ik.blog.model.Author;
 import am.ik.blog.model.Entry;
 import am.ik.marked4j.Marked;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 
 import org.springframework.cloud.sleuth.annotation.NewSpan;
 import org.springframework.stereotype.Component;
@@ -9,13 +20,76 @@ import org.springframework.stereotype.Component;
 @Component
 public class EntryRenderer {
 	private final Marked marked;
+	private final Cache<Revision, String> renderedCache;
+	private final Timer renderTimer;
 
-	public EntryRenderer(Marked marked) {
+	public EntryRenderer(Marked marked, MeterRegistry meterRegistry,
+			BlogProperties props) {
+		BlogProperties.Renderer renderer = props.getRenderer();
 		this.marked = marked;
+		this.renderedCache = CaffeineCacheMetrics.monitor(meterRegistry, Caffeine
+				.newBuilder() //
+				.maximumWeight(renderer.getCacheMaxWeight().toBytes()) //
+				.weigher((Revision key, String html) -> html.length() * 2) //
+				.expireAfterAccess(renderer.getCacheExpireAfterAccess()) //
+				.recordStats() //
+				.build(), "renderedEntryCache");
+		this.renderTimer = Timer.builder("blog.entry.render") //
+				.description("Time spent converting entry markdown to html") //
+				.register(meterRegistry);
 	}
 
 	@NewSpan
 	public String render(Entry entry) {
-		return this.marked.marked(entry.getContent());
+		Revision revision = Revision.of(entry);
+		if (revision == null) {
+			return this.renderTimer.record(() -> this.marked.marked(entry.getContent()));
+		}
+		return this.renderedCache.get(revision, key -> this.renderTimer
+				.record(() -> this.marked.marked(entry.getContent())));
+	}
+
+	public void clearCache() {
+		this.renderedCache.invalidateAll();
+	}
+
+	/**
+	 * Rendered html is only valid for the revision it was rendered from, so a new
+	 * updated timestamp naturally misses and the old revision ages out of the cache.
+	 */
+	static final class Revision {
+		private final Long entryId;
+		private final Instant updated;
+
+		private Revision(Long entryId, Instant updated) {
+			this.entryId = entryId;
+			this.updated = updated;
+		}
+
+		static Revision of(Entry entry) {
+			Author updated = entry.getUpdated();
+			OffsetDateTime date = updated == null ? null : updated.getDate();
+			if (entry.getEntryId() == null || date == null) {
+				return null;
+			}
+			return new Revision(entry.getEntryId(), date.toInstant());
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (o == null || getClass() != o.getClass()) {
+				return false;
+			}
+			Revision revision = (Revision) o;
+			return entryId.equals(revision.entryId) && updated.equals(revision.updated);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(entryId, updated);
+		}
 	}
 }
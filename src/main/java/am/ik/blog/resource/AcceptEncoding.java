@@ -0,0 +1,60 @@
+package am.ik.blog.resource;
+
+import java.util.List;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.util.StringUtils;
+
+/**
+ * Content codings accepted by a request. A coding listed with {@code q=0} is refused,
+ * and one that is not listed falls back to the quality of {@code *}, if present.
+ */
+public final class AcceptEncoding {
+	private AcceptEncoding() {
+	}
+
+	public static boolean acceptsGzip(HttpHeaders headers) {
+		return accepts(headers.getOrEmpty(HttpHeaders.ACCEPT_ENCODING), "gzip");
+	}
+
+	static boolean accepts(List<String> values, String coding) {
+		Double explicit = null;
+		Double wildcard = null;
+		for (String value : values) {
+			for (String element : StringUtils.tokenizeToStringArray(value, ",")) {
+				String[] params = StringUtils.tokenizeToStringArray(element, ";");
+				if (params.length == 0) {
+					continue;
+				}
+				double quality = quality(params);
+				if (coding.equalsIgnoreCase(params[0])
+						|| ("x-" + coding).equalsIgnoreCase(params[0])) {
+					explicit = explicit == null ? quality : Math.max(explicit, quality);
+				}
+				else if ("*".equals(params[0])) {
+					wildcard = quality;
+				}
+			}
+		}
+		if (explicit != null) {
+			return explicit > 0;
+		}
+		return wildcard != null && wildcard > 0;
+	}
+
+	static double quality(String[] params) {
+		for (int i = 1; i < params.length; i++) {
+			String param = params[i];
+			int eq = param.indexOf('=');
+			if (eq > 0 && "q".equalsIgnoreCase(param.substring(0, eq).trim())) {
+				try {
+					return Double.parseDouble(param.substring(eq + 1).trim());
+				}
+				catch (NumberFormatException e) {
+					return 0;
+				}
+			}
+		}
+		return 1;
+	}
+}
@@ -0,0 +1,181 @@
+package am.ik.blog.resource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import am.ik.blog.BlogProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Mono;
+
+import org.springframework.core.Ordered;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+
+import static org.springframework.http.HttpHeaders.ACCEPT_ENCODING;
+import static org.springframework.http.HttpHeaders.CONTENT_ENCODING;
+import static org.springframework.http.HttpHeaders.VARY;
+
+/**
+ * Serves the icons and manifests under {@code public/} from memory before any other
+ * filter (security, metrics) runs. Every file is read once into a direct buffer,
+ * text files also get a gzip variant, and responses carry a content-hash ETag with
+ * {@code immutable} caching.
+ */
+@Component
+public class StaticResourceFilter implements WebFilter, Ordered {
+	private static final Logger log = LoggerFactory.getLogger(StaticResourceFilter.class);
+	private final Map<String, StaticResource> resources;
+	private final String cacheControl;
+
+	public StaticResourceFilter(BlogProperties props) {
+		BlogProperties.StaticResources staticResources = props.getStaticResources();
+		this.resources = staticResources.isEnabled()
+				? load(staticResources.getLocation())
+				: Collections.emptyMap();
+		this.cacheControl = CacheControl.maxAge(staticResources.getMaxAge()) //
+				.cachePublic() //
+				.getHeaderValue() + ", immutable";
+	}
+
+	@Override
+	public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+		ServerHttpRequest request = exchange.getRequest();
+		HttpMethod method = request.getMethod();
+		StaticResource resource = this.resources.get(request.getPath().value());
+		if (resource == null || (method != HttpMethod.GET && method != HttpMethod.HEAD)) {
+			return chain.filter(exchange);
+		}
+		ServerHttpResponse response = exchange.getResponse();
+		HttpHeaders headers = response.getHeaders();
+		boolean gzip = resource.gzip != null
+				&& AcceptEncoding.acceptsGzip(request.getHeaders());
+		String etag = gzip ? resource.gzipEtag : resource.etag;
+		headers.setETag(etag);
+		headers.set(HttpHeaders.CACHE_CONTROL, this.cacheControl);
+		if (resource.gzip != null) {
+			headers.set(VARY, ACCEPT_ENCODING);
+		}
+		if (request.getHeaders().getIfNoneMatch().contains(etag)) {
+			response.setStatusCode(HttpStatus.NOT_MODIFIED);
+			return response.setComplete();
+		}
+		ByteBuffer body = resource.identity;
+		if (gzip) {
+			headers.set(CONTENT_ENCODING, "gzip");
+			body = resource.gzip;
+		}
+		headers.setContentType(resource.contentType);
+		headers.setContentLength(body.remaining());
+		if (method == HttpMethod.HEAD) {
+			return response.setComplete();
+		}
+		return response
+				.writeWith(Mono.just(response.bufferFactory().wrap(body.duplicate())));
+	}
+
+	@Override
+	public int getOrder() {
+		return Ordered.HIGHEST_PRECEDENCE;
+	}
+
+	static Map<String, StaticResource> load(String location) {
+		Map<String, StaticResource> resources = new HashMap<>();
+		try {
+			PathMatchingResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
+			Resource root = resolver.getResource(location);
+			String rootUrl = root.getURL().toString();
+			for (Resource resource : resolver.getResources(location + "**/*")) {
+				if (!resource.isReadable()) {
+					continue;
+				}
+				String path = "/" + resource.getURL().toString().substring(rootUrl.length());
+				if (path.endsWith("/")) {
+					continue;
+				}
+				try (InputStream stream = resource.getInputStream()) {
+					resources.put(path, StaticResource.of(path,
+							StreamUtils.copyToByteArray(stream)));
+				}
+			}
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		log.info("Loaded {} static resources from {}", resources.size(), location);
+		return resources;
+	}
+
+	static final class StaticResource {
+		private final MediaType contentType;
+		private final String etag;
+		private final String gzipEtag;
+		private final ByteBuffer identity;
+		private final ByteBuffer gzip;
+
+		private StaticResource(MediaType contentType, String etag, ByteBuffer identity,
+				ByteBuffer gzip) {
+			this.contentType = contentType;
+			this.etag = etag;
+			// a strong validator has to differ per content coding
+			this.gzipEtag = etag.substring(0, etag.length() - 1) + "-gz\"";
+			this.identity = identity;
+			this.gzip = gzip;
+		}
+
+		static StaticResource of(String path, byte[] content) throws IOException {
+			MediaType contentType = MediaTypeFactory.getMediaType(path)
+					.orElse(MediaType.APPLICATION_OCTET_STREAM);
+			String etag = "\"" + DigestUtils.md5DigestAsHex(content) + "\"";
+			ByteBuffer gzip = null;
+			if (isCompressible(contentType)) {
+				byte[] compressed = gzip(content);
+				if (compressed.length < content.length) {
+					gzip = direct(compressed);
+				}
+			}
+			return new StaticResource(contentType, etag, direct(content), gzip);
+		}
+
+		static boolean isCompressible(MediaType contentType) {
+			String subtype = contentType.getSubtype();
+			return "text".equals(contentType.getType()) || subtype.endsWith("json")
+					|| subtype.endsWith("xml") || subtype.contains("icon");
+		}
+
+		static byte[] gzip(byte[] content) throws IOException {
+			ByteArrayOutputStream out = new ByteArrayOutputStream(content.length);
+			try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+				gzip.write(content);
+			}
+			return out.toByteArray();
+		}
+
+		static ByteBuffer direct(byte[] content) {
+			ByteBuffer buffer = ByteBuffer.allocateDirect(content.length);
+			buffer.put(content).flip();
+			return buffer.asReadOnlyBuffer();
+		}
+	}
+}
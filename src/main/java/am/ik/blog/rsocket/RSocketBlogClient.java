@@ -0,0 +1,250 @@
+package am.ik.blog.rsocket;
+
+import java.net.URI;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import am.ik.blog.BlogClient;
+import am.ik.blog.BlogEntries;
+import am.ik.blog.BlogProperties;
+import am.ik.blog.http.ConcurrencyLimiter;
+import am.ik.blog.http.Decorator;
+import am.ik.blog.http.FusedResilience;
+import am.ik.blog.http.OperationTimeouts;
+import am.ik.blog.http.Retryer;
+import am.ik.blog.model.Category;
+import am.ik.blog.model.Entry;
+import am.ik.blog.model.Tag;
+import brave.Tracer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.circuitbreaker.commons.ReactiveCircuitBreakerFactory;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.codec.json.Jackson2SmileDecoder;
+import org.springframework.http.codec.json.Jackson2SmileEncoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.messaging.rsocket.RSocketRequester;
+import org.springframework.messaging.rsocket.RSocketStrategies;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+
+import static java.util.stream.Collectors.joining;
+
+/**
+ * {@link BlogClient} talking to blog-api over a single, lazily (re)connected RSocket
+ * connection. Single values use request-response and listings use request-stream.
+ */
+@Component
+@ConditionalOnProperty(name = "blog.client.type", havingValue = "rsocket")
+public class RSocketBlogClient implements BlogClient, DisposableBean {
+	private static final Logger log = LoggerFactory.getLogger(RSocketBlogClient.class);
+	private final RSocketRequester.Builder requesterBuilder;
+	private final URI uri;
+	private final Decorator decorator;
+	private final AtomicReference<Mono<RSocketRequester>> connection = new AtomicReference<>();
+	private final AtomicReference<RSocketRequester> connected = new AtomicReference<>();
+
+	public RSocketBlogClient(RSocketRequester.Builder builder, BlogProperties props,
+			ReactiveCircuitBreakerFactory circuitBreakerFactory, Tracer tracer,
+			MeterRegistry meterRegistry, OperationTimeouts timeouts,
+			FusedResilience fusedResilience,
+			Jackson2ObjectMapperBuilder objectMapperBuilder) {
+		BlogProperties.Rsocket rsocket = props.getRsocket();
+		this.uri = rsocket.getUri();
+		this.requesterBuilder = configure(builder, rsocket.getCodec(),
+				objectMapperBuilder);
+		this.decorator = new Decorator(
+				new Retryer(tracer, props.getRetry(), meterRegistry), timeouts,
+				new ConcurrencyLimiter(props.getConcurrency(), meterRegistry),
+				circuitBreakerFactory, fusedResilience);
+	}
+
+	static RSocketRequester.Builder configure(RSocketRequester.Builder builder,
+			BlogProperties.Codec codec, Jackson2ObjectMapperBuilder objectMapperBuilder) {
+		if (codec == BlogProperties.Codec.SMILE) {
+			ObjectMapper objectMapper = objectMapperBuilder.factory(new SmileFactory())
+					.build();
+			return builder.rsocketStrategies(RSocketStrategies.builder() //
+					.encoder(new Jackson2SmileEncoder(objectMapper)) //
+					.decoder(new Jackson2SmileDecoder(objectMapper)) //
+					.build()) //
+					.dataMimeType(MimeType.valueOf("application/x-jackson-smile"));
+		}
+		ObjectMapper objectMapper = objectMapperBuilder.build();
+		return builder.rsocketStrategies(RSocketStrategies.builder() //
+				.encoder(new Jackson2JsonEncoder(objectMapper)) //
+				.decoder(new Jackson2JsonDecoder(objectMapper)) //
+				.build()) //
+				.dataMimeType(MimeTypeUtils.APPLICATION_JSON);
+	}
+
+	@Override
+	public Mono<Entry> findById(Long entryId) {
+		return this.requester() //
+				.flatMap(r -> r.route("entries." + entryId) //
+						.data(Collections.emptyMap()) //
+						.retrieveMono(Entry.class)) //
+				.transform(this.decorator.decorate("blog-ui.findById"));
+	}
+
+	@Override
+	public Mono<BlogEntries> findAll(Pageable pageable) {
+		return this.entries("entries", query(null, pageable)) //
+				.collectList() //
+				.map(BlogEntries::new) //
+				.transform(this.decorator.decorate("blog-ui.findAll"));
+	}
+
+	@Override
+	public Flux<Entry> streamAll(Pageable pageable) {
+		return this.entries("entries", query(null, pageable)) //
+				.transform(this.decorator.decorate("blog-ui.streamAll"));
+	}
+
+	@Override
+	public Mono<BlogEntries> findByQuery(String query, Pageable pageable) {
+		return this.entries("entries", query(query, pageable)) //
+				.collectList() //
+				.map(BlogEntries::new) //
+				.transform(this.decorator.decorate("blog-ui.findByQuery"));
+	}
+
+	@Override
+	public Flux<Entry> streamByQuery(String query, Pageable pageable) {
+		return this.entries("entries", query(query, pageable)) //
+				.transform(this.decorator.decorate("blog-ui.findByQuery"));
+	}
+
+	@Override
+	public Mono<BlogEntries> findByCategories(List<Category> categories,
+			Pageable pageable) {
+		return this.streamByCategories(categories, pageable, "blog-ui.findByCategories")
+				.collectList() //
+				.map(BlogEntries::new);
+	}
+
+	@Override
+	public Flux<Entry> streamByCategories(List<Category> categories,
+			Pageable pageable) {
+		return this.streamByCategories(categories, pageable,
+				"blog-ui.streamByCategories");
+	}
+
+	private Flux<Entry> streamByCategories(List<Category> categories, Pageable pageable,
+			String name) {
+		String names = categories.stream().map(Category::getName).collect(joining(","));
+		return this.entries("categories." + names + ".entries", query(null, pageable)) //
+				.transform(this.decorator.decorate(name));
+	}
+
+	@Override
+	public Mono<BlogEntries> findByTag(Tag tag, Pageable pageable) {
+		return this.streamByTag(tag, pageable, "blog-ui.findByTag") //
+				.collectList() //
+				.map(BlogEntries::new);
+	}
+
+	@Override
+	public Flux<Entry> streamByTag(Tag tag, Pageable pageable) {
+		return this.streamByTag(tag, pageable, "blog-ui.streamByTag");
+	}
+
+	private Flux<Entry> streamByTag(Tag tag, Pageable pageable, String name) {
+		return this.entries("tags." + tag.getName() + ".entries", query(null, pageable)) //
+				.transform(this.decorator.decorate(name));
+	}
+
+	@Override
+	public Mono<List<Tag>> findTags() {
+		return this.requester() //
+				.flatMap(r -> r.route("tags") //
+						.data(Collections.emptyMap()) //
+						.retrieveMono(new ParameterizedTypeReference<List<Tag>>() {
+
+						})) //
+				.transform(this.decorator.decorate("blog-ui.findTags"));
+	}
+
+	@Override
+	public Mono<List<List<Category>>> findCategories() {
+		return this.requester() //
+				.flatMap(r -> r.route("categories") //
+						.data(Collections.emptyMap()) //
+						.retrieveMono(
+								new ParameterizedTypeReference<List<List<Category>>>() {
+
+								})) //
+				.transform(this.decorator.decorate("blog-ui.findCategories"));
+	}
+
+	@Override
+	public void destroy() {
+		RSocketRequester requester = this.connected.getAndSet(null);
+		if (requester != null) {
+			requester.rsocket().dispose();
+		}
+	}
+
+	private Flux<Entry> entries(String route, Map<String, Object> query) {
+		return this.requester() //
+				.flatMapMany(r -> r.route(route) //
+						.data(query) //
+						.retrieveFlux(Entry.class));
+	}
+
+	Mono<RSocketRequester> requester() {
+		return Mono.defer(() -> {
+			Mono<RSocketRequester> current = this.connection.get();
+			if (current != null) {
+				return current;
+			}
+			Mono<RSocketRequester> connecting = this.connect().cache();
+			return this.connection.compareAndSet(null, connecting) ? connecting
+					: this.requester();
+		});
+	}
+
+	private Mono<RSocketRequester> connect() {
+		return this.requesterBuilder.connectTcp(this.uri.getHost(), this.uri.getPort()) //
+				.doOnNext(requester -> {
+					log.info("Connected to {}", this.uri);
+					this.connected.set(requester);
+					requester.rsocket().onClose() //
+							.doFinally(signal -> {
+								log.info("Disconnected from {}", this.uri);
+								this.connected.compareAndSet(requester, null);
+								this.connection.set(null);
+							}) //
+							.subscribe();
+				}) //
+				.doOnError(e -> {
+					log.warn("Failed to connect to {}", this.uri, e);
+					this.connection.set(null);
+				});
+	}
+
+	static Map<String, Object> query(String query, Pageable pageable) {
+		Map<String, Object> data = new LinkedHashMap<>();
+		if (query != null) {
+			data.put("q", query);
+		}
+		data.put("page", pageable.getPageNumber());
+		data.put("size", pageable.getPageSize());
+		return data;
+	}
+}
@@ -0,0 +1,73 @@
+package am.ik.blog.shed;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.EventExecutorGroup;
+import io.netty.util.concurrent.ScheduledFuture;
+
+import org.springframework.beans.factory.DisposableBean;
+
+/**
+ * Schedules a task on every event loop each interval and reports by how much the
+ * slowest loop ran it late, i.e. how long work waits before an event loop gets to it.
+ */
+public class EventLoopLagProbe implements Supplier<Duration>, DisposableBean {
+	private final long intervalNanos;
+	private final List<Probe> probes = new ArrayList<>();
+	private volatile boolean stopped = false;
+
+	public EventLoopLagProbe(EventExecutorGroup group, Duration interval) {
+		this.intervalNanos = interval.toNanos();
+		for (EventExecutor executor : group) {
+			Probe probe = new Probe(executor);
+			this.probes.add(probe);
+			probe.schedule();
+		}
+	}
+
+	@Override
+	public Duration get() {
+		long lag = 0;
+		for (Probe probe : this.probes) {
+			lag = Math.max(lag, probe.lagNanos);
+		}
+		return Duration.ofNanos(lag);
+	}
+
+	@Override
+	public void destroy() {
+		this.stopped = true;
+		for (Probe probe : this.probes) {
+			ScheduledFuture<?> future = probe.future;
+			if (future != null) {
+				future.cancel(false);
+			}
+		}
+	}
+
+	class Probe {
+		private final EventExecutor executor;
+		private volatile long lagNanos;
+		private volatile ScheduledFuture<?> future;
+
+		Probe(EventExecutor executor) {
+			this.executor = executor;
+		}
+
+		void schedule() {
+			if (stopped || this.executor.isShuttingDown()) {
+				return;
+			}
+			long expected = System.nanoTime() + intervalNanos;
+			this.future = this.executor.schedule(() -> {
+				this.lagNanos = Math.max(0, System.nanoTime() - expected);
+				this.schedule();
+			}, intervalNanos, TimeUnit.NANOSECONDS);
+		}
+	}
+}
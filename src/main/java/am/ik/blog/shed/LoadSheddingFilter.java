@@ -0,0 +1,133 @@
+package am.ik.blog.shed;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import am.ik.blog.BlogClient;
+import am.ik.blog.BlogProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import reactor.core.publisher.Mono;
+
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import static org.springframework.http.HttpHeaders.CACHE_CONTROL;
+import static org.springframework.http.HttpHeaders.RETRY_AFTER;
+
+/**
+ * Rejects new requests with {@code 503} and {@code Retry-After} while too many
+ * requests are in flight or the event loops fall behind. Requests that can be
+ * answered from cache, like entries already in the entry cache, are still admitted
+ * so that cheap work keeps flowing. Actuator endpoints are never shed.
+ */
+public class LoadSheddingFilter implements WebFilter, Ordered {
+	private static final Pattern ENTRY_PATH = Pattern.compile("^/entries/([0-9]+)/?$");
+	private static final PathPatternParser parser = new PathPatternParser();
+	private static final List<PathPattern> routes = Arrays.asList(
+			parser.parse("/entries/{entryId}"), //
+			parser.parse("/p/entries/{entryId}"), //
+			parser.parse("/tags/{tag}/entries"), //
+			parser.parse("/categories/{categories}/entries"), //
+			parser.parse("/tags"), //
+			parser.parse("/categories"), //
+			parser.parse("/entries"), //
+			parser.parse("/"));
+	private final BlogClient blogClient;
+	private final BlogProperties.LoadShedding props;
+	private final Supplier<Duration> eventLoopLag;
+	private final MeterRegistry meterRegistry;
+	private final AtomicInteger inFlight = new AtomicInteger();
+
+	public LoadSheddingFilter(BlogClient blogClient, BlogProperties props,
+			Supplier<Duration> eventLoopLag, MeterRegistry meterRegistry) {
+		this.blogClient = blogClient;
+		this.props = props.getLoadShedding();
+		this.eventLoopLag = eventLoopLag;
+		this.meterRegistry = meterRegistry;
+		Gauge.builder("blog.shed.in-flight", this.inFlight, AtomicInteger::get) //
+				.description("Requests currently being processed") //
+				.register(meterRegistry);
+		TimeGauge.builder("blog.shed.event-loop-lag", eventLoopLag,
+				TimeUnit.MILLISECONDS, lag -> lag.get().toMillis()) //
+				.description("How late the slowest event loop runs scheduled work") //
+				.register(meterRegistry);
+	}
+
+	@Override
+	public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+		ServerHttpRequest request = exchange.getRequest();
+		if (this.isOverloaded() && !this.isExempt(request)) {
+			if (!this.isCached(request)) {
+				return this.shed(exchange);
+			}
+			this.count(request, "admitted_cached");
+		}
+		this.inFlight.incrementAndGet();
+		return chain.filter(exchange)
+				.doFinally(signal -> this.inFlight.decrementAndGet());
+	}
+
+	@Override
+	public int getOrder() {
+		return Ordered.HIGHEST_PRECEDENCE + 5;
+	}
+
+	boolean isOverloaded() {
+		return this.inFlight.get() >= this.props.getMaxInFlight() || this.eventLoopLag
+				.get().compareTo(this.props.getMaxEventLoopLag()) > 0;
+	}
+
+	private boolean isExempt(ServerHttpRequest request) {
+		return request.getPath().pathWithinApplication().value()
+				.startsWith("/actuator");
+	}
+
+	private boolean isCached(ServerHttpRequest request) {
+		if (request.getMethod() != HttpMethod.GET
+				&& request.getMethod() != HttpMethod.HEAD) {
+			return false;
+		}
+		Matcher matcher = ENTRY_PATH.matcher(request.getPath().value());
+		return matcher.matches()
+				&& this.blogClient.isCached(Long.valueOf(matcher.group(1)));
+	}
+
+	private Mono<Void> shed(ServerWebExchange exchange) {
+		this.count(exchange.getRequest(), "shed");
+		ServerHttpResponse response = exchange.getResponse();
+		response.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+		response.getHeaders().set(RETRY_AFTER,
+				String.valueOf(Math.max(1, this.props.getRetryAfter().getSeconds())));
+		response.getHeaders().set(CACHE_CONTROL, "no-store");
+		return response.setComplete();
+	}
+
+	private void count(ServerHttpRequest request, String result) {
+		this.meterRegistry
+				.counter("blog.shed.requests", "uri", route(request), "result", result)
+				.increment();
+	}
+
+	static String route(ServerHttpRequest request) {
+		PathContainer path = request.getPath().pathWithinApplication();
+		return routes.stream().filter(p -> p.matches(path)).findFirst()
+				.map(PathPattern::getPatternString).orElse("other");
+	}
+}
@@ -0,0 +1,164 @@
+package am.ik.blog.warmup;
+
+import java.time.OffsetDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import am.ik.blog.BlogClient;
+import am.ik.blog.BlogEntries;
+import am.ik.blog.BlogProperties;
+import am.ik.blog.model.Entry;
+import am.ik.blog.renderer.EntryRenderer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Fills the listing, entry and rendered html caches once the application is ready.
+ * Health stays {@code OUT_OF_SERVICE} until the warm-up finishes or its deadline
+ * passes, so a rollout does not route visitors to a cold replica.
+ */
+@Component
+public class CacheWarmer implements ApplicationListener<ApplicationReadyEvent>,
+		HealthIndicator {
+	private static final Logger log = LoggerFactory.getLogger(CacheWarmer.class);
+	private final BlogClient blogClient;
+	private final EntryRenderer entryRenderer;
+	private final BlogProperties.Warmup props;
+	private final MeterRegistry meterRegistry;
+	private final Timer duration;
+	private final AtomicReference<State> state;
+	private final AtomicInteger total = new AtomicInteger();
+	private final AtomicInteger completed = new AtomicInteger();
+
+	enum State {
+		DISABLED, PENDING, WARMING, DONE
+	}
+
+	public CacheWarmer(BlogClient blogClient, EntryRenderer entryRenderer,
+			BlogProperties props, MeterRegistry meterRegistry) {
+		this.blogClient = blogClient;
+		this.entryRenderer = entryRenderer;
+		this.props = props.getWarmup();
+		this.meterRegistry = meterRegistry;
+		this.state = new AtomicReference<>(
+				this.props.isEnabled() ? State.PENDING : State.DISABLED);
+		this.duration = Timer.builder("blog.warmup.duration") //
+				.description("Time spent warming caches on startup") //
+				.register(meterRegistry);
+		Gauge.builder("blog.warmup.total", this.total, AtomicInteger::get) //
+				.description("Number of warm-up steps scheduled") //
+				.register(meterRegistry);
+		Gauge.builder("blog.warmup.completed", this.completed, AtomicInteger::get) //
+				.description("Number of warm-up steps finished") //
+				.register(meterRegistry);
+	}
+
+	@Override
+	public void onApplicationEvent(ApplicationReadyEvent event) {
+		if (this.state.get() == State.PENDING) {
+			this.warmup().subscribe();
+		}
+	}
+
+	@Override
+	public Health health() {
+		Health.Builder builder = this.isReady() ? Health.up() : Health.outOfService();
+		return builder //
+				.withDetail("state", this.state.get()) //
+				.withDetail("completed", this.completed.get()) //
+				.withDetail("total", this.total.get()) //
+				.build();
+	}
+
+	boolean isReady() {
+		State current = this.state.get();
+		return current == State.DISABLED || current == State.DONE;
+	}
+
+	Mono<Void> warmup() {
+		return Mono.defer(() -> {
+			if (!this.state.compareAndSet(State.PENDING, State.WARMING)) {
+				return Mono.empty();
+			}
+			log.info("Start warming caches");
+			Timer.Sample sample = Timer.start(this.meterRegistry);
+			this.total.addAndGet(this.props.getListingPages() + 2);
+			Flux<Entry> listed = Flux.range(0, this.props.getListingPages()) //
+					.flatMap(page -> this.step("listing", this.blogClient.findAll(
+							PageRequest.of(page, this.props.getPageSize()))),
+							this.props.getConcurrency()) //
+					.flatMapIterable(BlogEntries::getContent);
+			Flux<Entry> entries = listed.collectList() //
+					.map(this::recentlyUpdated) //
+					.doOnNext(ids -> this.total.addAndGet(ids.size())) //
+					.flatMapMany(Flux::fromIterable) //
+					.flatMap(entryId -> this.step("entry", this.blogClient
+							.findById(entryId).doOnNext(this.entryRenderer::render)),
+							this.props.getConcurrency());
+			return Flux.merge(entries, //
+					this.step("tags", this.blogClient.findTags()), //
+					this.step("categories", this.blogClient.findCategories())) //
+					.then() //
+					.timeout(this.props.getDeadline()) //
+					.onErrorResume(TimeoutException.class, e -> {
+						log.warn("Gave up warming caches after {} ({}/{} steps)",
+								this.props.getDeadline(), this.completed.get(),
+								this.total.get());
+						return Mono.empty();
+					}) //
+					.doFinally(signal -> {
+						sample.stop(this.duration);
+						this.state.set(State.DONE);
+						log.info("Finished warming caches ({}/{} steps)",
+								this.completed.get(), this.total.get());
+					});
+		});
+	}
+
+	List<Long> recentlyUpdated(List<Entry> entries) {
+		return entries.stream() //
+				.filter(e -> e.getUpdated() != null
+						&& e.getUpdated().getDate() != null) //
+				.sorted(Comparator.comparing((Entry e) -> e.getUpdated().getDate(),
+						Comparator.<OffsetDateTime> reverseOrder())) //
+				.map(Entry::getEntryId) //
+				.filter(Objects::nonNull) //
+				.distinct() //
+				.limit(this.props.getEntries()) //
+				.collect(toList());
+	}
+
+	private <T> Mono<T> step(String kind, Mono<T> step) {
+		return step //
+				.doOnSuccess(x -> this.record(kind, "success")) //
+				.onErrorResume(e -> {
+					log.warn("Failed to warm {}", kind, e);
+					this.record(kind, "failure");
+					return Mono.empty();
+				});
+	}
+
+	private void record(String kind, String result) {
+		this.completed.incrementAndGet();
+		this.meterRegistry.counter("blog.warmup.steps", "kind", kind, "result", result)
+				.increment();
+	}
+}
@@ -0,0 +1,80 @@
+package am.ik.blog;
+
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+import am.ik.blog.model.Entry;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import reactor.core.publisher.Flux;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.CacheControl;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import static am.ik.blog.BlogControllerTest.entry99998;
+import static am.ik.blog.BlogControllerTest.entry99999;
+import static java.time.format.DateTimeFormatter.RFC_1123_DATE_TIME;
+import static java.util.concurrent.TimeUnit.HOURS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.springframework.http.HttpHeaders.LAST_MODIFIED;
+import static org.springframework.http.HttpStatus.NOT_MODIFIED;
+import static org.springframework.http.HttpStatus.OK;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "blog.home.streaming=true")
+public class BlogStreamingControllerTest {
+	@MockBean
+	BlogClient blogClient;
+	@Autowired
+	WebTestClient webTestClient;
+	@Autowired
+	MeterRegistry meterRegistry;
+
+	@Test
+	public void entries_ok_200() throws Exception {
+		Entry entry1 = entry99999();
+		Entry entry2 = entry99998();
+
+		given(blogClient.streamAll(any())) //
+				.willReturn(Flux.just(entry1, entry2));
+
+		this.webTestClient.get() //
+				.uri("/") //
+				.exchange()//
+				.expectStatus().isEqualTo(OK) //
+				.expectHeader()
+				.valueEquals(LAST_MODIFIED,
+						entry1.getUpdated().getDate().atZoneSameInstant(ZoneId.of("GMT"))
+								.format(RFC_1123_DATE_TIME)) //
+				.expectHeader().cacheControl(CacheControl.maxAge(3, HOURS)) //
+				.expectBody(String.class) //
+				.consumeWith(r -> assertThat(r.getResponseBody())
+						.contains("/entries/99999", "/entries/99998"));
+		assertThat(this.meterRegistry.get("blog.render.first-byte").tag("uri", "/")
+				.timer().count()).isGreaterThanOrEqualTo(1);
+	}
+
+	@Test
+	public void entries_not_modified_304() throws Exception {
+		Entry entry1 = entry99999();
+		Entry entry2 = entry99998();
+
+		given(blogClient.streamAll(any())) //
+				.willReturn(Flux.just(entry1, entry2));
+
+		ZonedDateTime dateTime = entry1.getUpdated().getDate()
+				.atZoneSameInstant(ZoneId.of("GMT"));
+		this.webTestClient.get() //
+				.uri("/") //
+				.ifModifiedSince(dateTime) //
+				.exchange()//
+				.expectStatus().isEqualTo(NOT_MODIFIED);
+	}
+}
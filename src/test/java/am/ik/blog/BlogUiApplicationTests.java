@@ -1,9 +1,14 @@
 package am.ik.blog;
 
+import java.time.ZonedDateTime;
+
 import am.ik.blog.http.BlogHttpClient;
+import am.ik.blog.page.EntryPageCacheFilter;
+import am.ik.blog.renderer.EntryRenderer;
 import com.gargoylesoftware.htmlunit.WebClient;
 import com.gargoylesoftware.htmlunit.WebClientOptions;
 import com.gargoylesoftware.htmlunit.html.HtmlPage;
+import io.micrometer.core.instrument.MeterRegistry;
 import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.MockWebServer;
 import okio.Buffer;
@@ -21,6 +26,7 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.reactive.server.WebTestClient;
 
 import static am.ik.blog.BlogUiApplicationTests.API_SERVER_PORT;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -37,10 +43,18 @@ public class BlogUiApplicationTests {
 	WebClient webClient;
 	@Autowired
 	BlogHttpClient blogHttpClient;
+	@Autowired
+	MeterRegistry meterRegistry;
+	@Autowired
+	EntryPageCacheFilter entryPageCacheFilter;
+	@Autowired
+	EntryRenderer entryRenderer;
 
 	@Before
 	public void setup() throws Exception {
 		this.blogHttpClient.clearCache();
+		this.entryPageCacheFilter.clear();
+		this.entryRenderer.clearCache();
 		this.server.start(API_SERVER_PORT);
 		this.webClient = new WebClient();
 		WebClientOptions options = this.webClient.getOptions();
@@ -156,6 +170,28 @@ public class BlogUiApplicationTests {
 				"</ul>");
 	}
 
+	@Test
+	public void entriesNotModifiedWithoutUpstream() throws Exception {
+		this.server.enqueue(new MockResponse()
+				.setHeader(HttpHeaders.CONTENT_TYPE, "application/stream+json")
+				.setBody(new Buffer().readFrom(
+						new ClassPathResource("data/entries.json").getInputStream())));
+		this.webClient.getPage("http://localhost:" + port);
+		assertThat(this.server.getRequestCount()).isEqualTo(1);
+
+		WebTestClient.bindToServer() //
+				.baseUrl("http://localhost:" + port) //
+				.build() //
+				.get() //
+				.uri("/") //
+				.ifModifiedSince(ZonedDateTime.parse("2017-04-01T02:00:00+09:00")) //
+				.exchange() //
+				.expectStatus().isNotModified();
+		assertThat(this.server.getRequestCount()).isEqualTo(1);
+		assertThat(this.meterRegistry.get("blog.home.not_modified").counter().count())
+				.isGreaterThanOrEqualTo(1.0);
+	}
+
 	@Test
 	public void entry() throws Exception {
 		this.server.enqueue(new MockResponse()
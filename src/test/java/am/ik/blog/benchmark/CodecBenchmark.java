@@ -0,0 +1,130 @@
+package am.ik.blog.benchmark;
+
+import java.io.IOException;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import am.ik.blog.BlogEntries;
+import am.ik.blog.model.AuthorBuilder;
+import am.ik.blog.model.Category;
+import am.ik.blog.model.Entry;
+import am.ik.blog.model.EntryBuilder;
+import am.ik.blog.model.FrontMatterBuilder;
+import am.ik.blog.model.Tag;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * Compares decoding blog-api payloads as JSON and Smile. Run with
+ * {@code ./mvnw test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=am.ik.blog.benchmark.CodecBenchmark} or from the IDE.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodecBenchmark {
+	ObjectMapper json;
+	ObjectMapper smile;
+	byte[] entryJson;
+	byte[] entrySmile;
+	byte[] listingJson;
+	byte[] listingSmile;
+
+	@Setup
+	public void setup() throws IOException {
+		Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json();
+		this.json = builder.build();
+		this.smile = builder.factory(new SmileFactory()).build();
+		Entry entry = Fixtures.entry(1L, Fixtures.content(20_000));
+		List<Entry> entries = new ArrayList<>();
+		for (long i = 0; i < 50; i++) {
+			entries.add(Fixtures.entry(i, null));
+		}
+		BlogEntries listing = new BlogEntries(entries);
+		this.entryJson = this.json.writeValueAsBytes(entry);
+		this.entrySmile = this.smile.writeValueAsBytes(entry);
+		this.listingJson = this.json.writeValueAsBytes(listing);
+		this.listingSmile = this.smile.writeValueAsBytes(listing);
+	}
+
+	@Benchmark
+	public Entry decodeEntryJson() throws IOException {
+		return this.json.readValue(this.entryJson, Entry.class);
+	}
+
+	@Benchmark
+	public Entry decodeEntrySmile() throws IOException {
+		return this.smile.readValue(this.entrySmile, Entry.class);
+	}
+
+	@Benchmark
+	public BlogEntries decodeListingJson() throws IOException {
+		return this.json.readValue(this.listingJson, BlogEntries.class);
+	}
+
+	@Benchmark
+	public BlogEntries decodeListingSmile() throws IOException {
+		return this.smile.readValue(this.listingSmile, BlogEntries.class);
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder() //
+				.include(CodecBenchmark.class.getSimpleName()) //
+				.addProfiler(GCProfiler.class) //
+				.build()).run();
+	}
+
+	static class Fixtures {
+		static Entry entry(Long entryId, String content) {
+			OffsetDateTime date = OffsetDateTime.parse("2017-04-01T02:00:00+09:00");
+			return new EntryBuilder() //
+					.withEntryId(entryId) //
+					.withContent(content) //
+					.withFrontMatter(new FrontMatterBuilder() //
+							.withTitle("Spring Bootで作るマイクロサービス " + entryId) //
+							.withCategories(Arrays.asList(Category.of("Programming"),
+									Category.of("Java"), Category.of("Spring"))) //
+							.withTags(Arrays.asList(Tag.of("Java"),
+									Tag.of("Spring Boot"), Tag.of("Reactor"))) //
+							.build()) //
+					.withCreated(new AuthorBuilder().withName("making").withDate(date)
+							.build()) //
+					.withUpdated(new AuthorBuilder().withName("making").withDate(date)
+							.build()) //
+					.build();
+		}
+
+		static String content(int length) {
+			String paragraph = "## 見出し\n\nReactorを使ってノンブロッキングな処理を書く。"
+					+ "`Mono` and `Flux` are the building blocks.\n\n"
+					+ "```java\nMono.just(\"hello\").map(String::toUpperCase);\n```\n\n";
+			StringBuilder sb = new StringBuilder(length + paragraph.length());
+			while (sb.length() < length) {
+				sb.append(paragraph);
+			}
+			return sb.toString();
+		}
+	}
+}
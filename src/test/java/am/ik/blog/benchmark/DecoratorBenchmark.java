@@ -0,0 +1,108 @@
+package am.ik.blog.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import am.ik.blog.BlogProperties;
+import am.ik.blog.config.Resilience4JConfig;
+import am.ik.blog.http.ConcurrencyLimiter;
+import am.ik.blog.http.Decorator;
+import am.ik.blog.http.FusedResilience;
+import am.ik.blog.http.OperationTimeouts;
+import am.ik.blog.http.Retryer;
+import brave.Tracing;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Mono;
+
+import org.springframework.cloud.circuitbreaker.resilience4j.ReactiveResilience4JCircuitBreakerFactory;
+
+/**
+ * Compares decorating an upstream call with a pipeline built for every call, as
+ * before, against the per-operation pipeline that {@link Decorator} now keeps. Both
+ * the assembly alone and a full subscription are measured; run with the GC profiler
+ * to see the allocation per call. Run with {@code ./mvnw test-compile exec:java
+ * -Dexec.classpathScope=test -Dexec.mainClass=am.ik.blog.benchmark.DecoratorBenchmark}
+ * or from the IDE.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DecoratorBenchmark {
+	static final String NAME = "blog-ui.findAll";
+	BlogProperties props;
+	MeterRegistry meterRegistry;
+	Retryer retryer;
+	OperationTimeouts timeouts;
+	ConcurrencyLimiter limiter;
+	ReactiveResilience4JCircuitBreakerFactory circuitBreakerFactory;
+	FusedResilience fusedResilience;
+	Decorator decorator;
+	Mono<String> upstream = Mono.just("foo");
+
+	@Setup
+	public void setup() {
+		this.props = new BlogProperties();
+		this.meterRegistry = new SimpleMeterRegistry();
+		this.retryer = new Retryer(Tracing.newBuilder().build().tracer(),
+				this.props.getRetry(), this.meterRegistry);
+		this.timeouts = new OperationTimeouts(this.props, this.meterRegistry);
+		this.limiter = new ConcurrencyLimiter(this.props.getConcurrency(),
+				this.meterRegistry);
+		this.circuitBreakerFactory = new ReactiveResilience4JCircuitBreakerFactory();
+		Resilience4JConfig config = new Resilience4JConfig();
+		config.resilience4jCustomizer(this.meterRegistry, this.timeouts)
+				.customize(this.circuitBreakerFactory);
+		this.fusedResilience = config.fusedResilience(this.props, this.meterRegistry);
+		this.decorator = this.decorator();
+	}
+
+	@Benchmark
+	public Publisher<String> assemblePerCall() {
+		return this.upstream.transform(this.decorator().decorate(NAME));
+	}
+
+	@Benchmark
+	public Publisher<String> assemblePrecomputed() {
+		return this.upstream.transform(this.decorator.decorate(NAME));
+	}
+
+	@Benchmark
+	public String subscribePerCall() {
+		return this.upstream.transform(this.decorator().decorate(NAME)).block();
+	}
+
+	@Benchmark
+	public String subscribePrecomputed() {
+		return this.upstream.transform(this.decorator.decorate(NAME)).block();
+	}
+
+	Decorator decorator() {
+		return new Decorator(this.retryer, this.timeouts, this.limiter,
+				this.circuitBreakerFactory, this.fusedResilience);
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder() //
+				.include(DecoratorBenchmark.class.getSimpleName()) //
+				.addProfiler(GCProfiler.class) //
+				.build()).run();
+	}
+}
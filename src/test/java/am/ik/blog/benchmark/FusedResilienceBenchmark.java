@@ -0,0 +1,110 @@
+package am.ik.blog.benchmark;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import am.ik.blog.BlogProperties;
+import am.ik.blog.config.Resilience4JConfig;
+import am.ik.blog.http.ConcurrencyLimiter;
+import am.ik.blog.http.Decorator;
+import am.ik.blog.http.OperationTimeouts;
+import am.ik.blog.http.Retryer;
+import brave.Tracing;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import reactor.core.publisher.Mono;
+
+import org.springframework.cloud.circuitbreaker.resilience4j.ReactiveResilience4JCircuitBreakerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+/**
+ * Compares the time limit, retry and circuit breaker chain of {@link Decorator}
+ * against the fused operator enabled by {@code blog.fused-resilience}, for a
+ * successful call and for a failed one resumed by a fallback. Run with the GC profiler
+ * to compare the allocation per call. Run with {@code ./mvnw test-compile exec:java
+ * -Dexec.classpathScope=test
+ * -Dexec.mainClass=am.ik.blog.benchmark.FusedResilienceBenchmark} or from the IDE.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FusedResilienceBenchmark {
+	static final String NAME = "blog-ui.findAll";
+	Decorator chain;
+	Decorator fused;
+	Mono<String> upstream = Mono.just("foo");
+	Mono<String> failing = Mono.error(WebClientResponseException.create(
+			HttpStatus.NOT_FOUND.value(), HttpStatus.NOT_FOUND.getReasonPhrase(),
+			HttpHeaders.EMPTY, new byte[0], StandardCharsets.UTF_8));
+	Mono<String> fallback = Mono.just("bar");
+
+	@Setup
+	public void setup() {
+		this.chain = decorator(false);
+		this.fused = decorator(true);
+	}
+
+	@Benchmark
+	public String chainSuccess() {
+		return this.upstream.transform(this.chain.decorate(NAME)).block();
+	}
+
+	@Benchmark
+	public String fusedSuccess() {
+		return this.upstream.transform(this.fused.decorate(NAME)).block();
+	}
+
+	@Benchmark
+	public String chainFallback() {
+		return this.failing
+				.transform(this.chain.decorate(NAME, e -> this.fallback)).block();
+	}
+
+	@Benchmark
+	public String fusedFallback() {
+		return this.failing
+				.transform(this.fused.decorate(NAME, e -> this.fallback)).block();
+	}
+
+	static Decorator decorator(boolean fusedResilience) {
+		BlogProperties props = new BlogProperties();
+		props.setFusedResilience(fusedResilience);
+		MeterRegistry meterRegistry = new SimpleMeterRegistry();
+		OperationTimeouts timeouts = new OperationTimeouts(props, meterRegistry);
+		ReactiveResilience4JCircuitBreakerFactory circuitBreakerFactory = new ReactiveResilience4JCircuitBreakerFactory();
+		Resilience4JConfig config = new Resilience4JConfig();
+		config.resilience4jCustomizer(meterRegistry, timeouts)
+				.customize(circuitBreakerFactory);
+		return new Decorator(
+				new Retryer(Tracing.newBuilder().build().tracer(), props.getRetry(),
+						meterRegistry),
+				timeouts, new ConcurrencyLimiter(props.getConcurrency(), meterRegistry),
+				circuitBreakerFactory, config.fusedResilience(props, meterRegistry));
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder() //
+				.include(FusedResilienceBenchmark.class.getSimpleName()) //
+				.addProfiler(GCProfiler.class) //
+				.build()).run();
+	}
+}
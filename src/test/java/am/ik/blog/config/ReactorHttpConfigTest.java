@@ -0,0 +1,47 @@
+package am.ik.blog.config;
+
+import java.net.ServerSocket;
+import java.net.URI;
+
+import am.ik.blog.BlogProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.reactive.ClientHttpConnector;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ReactorHttpConfigTest {
+	MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	@Test
+	public void releasePendingOnRefusedConnection() throws Exception {
+		BlogProperties props = new BlogProperties();
+		props.getHttpClient().setPendingAcquireMaxCount(1);
+		ClientHttpConnector connector = new ReactorHttpConfig()
+				.clientHttpConnector(props, this.meterRegistry);
+		URI uri = URI.create("http://localhost:" + unusedPort() + "/");
+
+		for (int i = 0; i < 3; i++) {
+			// refused by the server, not rejected as too many pending exchanges
+			assertThatThrownBy(() -> connector
+					.connect(HttpMethod.GET, uri, request -> request.setComplete())
+					.block()).isNotInstanceOf(IllegalStateException.class);
+		}
+		assertThat(gauge("blog.http-client.connections.pending")).isZero();
+		assertThat(gauge("blog.http-client.connections.active")).isZero();
+	}
+
+	double gauge(String name) {
+		return this.meterRegistry.get(name).gauge().value();
+	}
+
+	static int unusedPort() throws Exception {
+		try (ServerSocket socket = new ServerSocket(0)) {
+			return socket.getLocalPort();
+		}
+	}
+}
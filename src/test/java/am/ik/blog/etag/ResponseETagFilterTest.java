@@ -0,0 +1,72 @@
+package am.ik.blog.etag;
+
+import java.nio.charset.StandardCharsets;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+import reactor.core.publisher.Mono;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ResponseETagFilterTest {
+	MeterRegistry meterRegistry = new SimpleMeterRegistry();
+	ResponseETagFilter filter = new ResponseETagFilter(this.meterRegistry);
+	WebFilterChain chain = exchange -> {
+		DataBuffer body = exchange.getResponse().bufferFactory()
+				.wrap("<ul><li>Java</li></ul>".getBytes(StandardCharsets.UTF_8));
+		return exchange.getResponse().writeWith(Mono.just(body));
+	};
+
+	@Test
+	public void addETag() {
+		MockServerWebExchange exchange = MockServerWebExchange
+				.from(MockServerHttpRequest.get("/tags"));
+		this.filter.filter(exchange, this.chain).block();
+
+		HttpHeaders headers = exchange.getResponse().getHeaders();
+		assertThat(headers.getETag()).startsWith("\"0").endsWith("\"");
+		assertThat(headers.getVary()).containsExactly(HttpHeaders.ACCEPT_LANGUAGE);
+		assertThat(exchange.getResponse().getBodyAsString().block())
+				.isEqualTo("<ul><li>Java</li></ul>");
+	}
+
+	@Test
+	public void notModified() {
+		MockServerWebExchange first = MockServerWebExchange
+				.from(MockServerHttpRequest.get("/tags/Java/entries"));
+		this.filter.filter(first, this.chain).block();
+		String etag = first.getResponse().getHeaders().getETag();
+
+		MockServerWebExchange second = MockServerWebExchange.from(
+				MockServerHttpRequest.get("/tags/Java/entries").ifNoneMatch(etag));
+		this.filter.filter(second, this.chain).block();
+
+		assertThat(second.getResponse().getStatusCode())
+				.isEqualTo(HttpStatus.NOT_MODIFIED);
+		assertThat(second.getResponse().getHeaders().getETag()).isEqualTo(etag);
+		assertThat(this.meterRegistry.get("blog.etag.responses")
+				.tag("uri", "/tags/{tag}/entries").tag("result", "not_modified")
+				.counter().count()).isEqualTo(1.0);
+	}
+
+	@Test
+	public void searchIsMatchedByQuery() {
+		MockServerWebExchange search = MockServerWebExchange
+				.from(MockServerHttpRequest.get("/?q=spring"));
+		this.filter.filter(search, this.chain).block();
+		assertThat(search.getResponse().getHeaders().getETag()).isNotNull();
+
+		MockServerWebExchange home = MockServerWebExchange
+				.from(MockServerHttpRequest.get("/"));
+		this.filter.filter(home, this.chain).block();
+		assertThat(home.getResponse().getHeaders().getETag()).isNull();
+	}
+}
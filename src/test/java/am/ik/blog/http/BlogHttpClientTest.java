@@ -0,0 +1,162 @@
+package am.ik.blog.http;
+
+import java.time.Duration;
+
+import am.ik.blog.BlogProperties;
+import am.ik.blog.model.Entry;
+import brave.Tracing;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+
+import org.springframework.cloud.circuitbreaker.resilience4j.ReactiveResilience4JCircuitBreakerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BlogHttpClientTest {
+	static final String ENTRY = "{\"entryId\":99999,\"content\":\"Hello\","
+			+ "\"created\":{\"name\":\"making\",\"date\":\"2017-04-01T01:00:00+09:00\"},"
+			+ "\"updated\":{\"name\":\"making\",\"date\":\"2017-04-01T02:00:00+09:00\"},"
+			+ "\"frontMatter\":{\"title\":\"Hello World!!\",\"categories\":[\"x\"],"
+			+ "\"tags\":[\"test1\"]}}";
+	MockWebServer server = new MockWebServer();
+	MeterRegistry meterRegistry = new SimpleMeterRegistry();
+	BlogProperties props = new BlogProperties();
+
+	@Before
+	public void setup() throws Exception {
+		this.server.start();
+		this.props.getApi().setUrl(this.server.url("/").toString());
+		this.props.getRetry().setMax(0);
+		this.props.getEntryCache().setStaleWhileRevalidate(true);
+		this.props.getEntryCache().setRevalidateInterval(Duration.ofMillis(100));
+		this.props.getEntryCache().setMaxStale(Duration.ofSeconds(10));
+	}
+
+	@After
+	public void shutdown() throws Exception {
+		this.server.shutdown();
+	}
+
+	@Test
+	public void serveStaleAndRevalidateOnceInBackground() throws Exception {
+		BlogHttpClient client = blogHttpClient();
+		this.server.enqueue(entry());
+		assertThat(client.findById(99999L).block().getEntryId()).isEqualTo(99999L);
+		Thread.sleep(200);
+
+		this.server.enqueue(new MockResponse().setResponseCode(304));
+		// both served before the background revalidation can complete
+		Tuple2<Entry, Entry> entries = Mono
+				.zip(client.findById(99999L), client.findById(99999L)).block();
+		for (int i = 0; i < 50
+				&& revalidations("background", "not_modified") == 0; i++) {
+			Thread.sleep(10);
+		}
+
+		assertThat(entries.getT1().getEntryId()).isEqualTo(99999L);
+		assertThat(entries.getT2().getEntryId()).isEqualTo(99999L);
+		assertThat(this.meterRegistry.get("blog.entry.served_stale").counter().count())
+				.isEqualTo(2.0);
+		assertThat(revalidations("background", "not_modified")).isEqualTo(1.0);
+		assertThat(this.server.getRequestCount()).isEqualTo(2);
+		assertThat(this.server.takeRequest().getMethod()).isEqualTo("GET");
+		assertThat(this.server.takeRequest().getHeader(HttpHeaders.IF_MODIFIED_SINCE))
+				.isNotNull();
+	}
+
+	@Test
+	public void revalidateSynchronouslyPastMaxStale() throws Exception {
+		this.props.getEntryCache().setMaxStale(Duration.ofMillis(100));
+		BlogHttpClient client = blogHttpClient();
+		this.server.enqueue(entry());
+		client.findById(99999L).block();
+		Thread.sleep(200);
+
+		this.server.enqueue(new MockResponse().setResponseCode(304));
+		assertThat(client.findById(99999L).block().getEntryId()).isEqualTo(99999L);
+
+		assertThat(revalidations("sync", "not_modified")).isEqualTo(1.0);
+		assertThat(this.meterRegistry.find("blog.entry.served_stale").counter())
+				.isNull();
+		assertThat(this.server.getRequestCount()).isEqualTo(2);
+	}
+
+	@Test
+	public void fetchAgainWhenModified() throws Exception {
+		this.props.getEntryCache().setMaxStale(Duration.ofMillis(100));
+		BlogHttpClient client = blogHttpClient();
+		this.server.enqueue(entry());
+		client.findById(99999L).block();
+		Thread.sleep(200);
+
+		this.server.enqueue(new MockResponse().setResponseCode(200));
+		this.server.enqueue(entry());
+		assertThat(client.findById(99999L).block().getEntryId()).isEqualTo(99999L);
+
+		assertThat(revalidations("sync", "modified")).isEqualTo(1.0);
+		assertThat(this.server.getRequestCount()).isEqualTo(3);
+	}
+
+	@Test
+	public void evictOnceMaximumWeightIsExceeded() throws Exception {
+		// one entry weighs 592 bytes
+		this.props.getEntryCache().setMaximumWeight(DataSize.ofBytes(1000));
+		BlogHttpClient client = blogHttpClient();
+		this.server.enqueue(entry());
+		this.server.enqueue(entry().setBody(ENTRY.replace("99999", "99998")));
+
+		client.findById(99999L).block();
+		client.findById(99998L).block();
+		for (int i = 0; i < 50
+				&& gauge("blog.entry-cache.eviction-weight") == 0; i++) {
+			Thread.sleep(10);
+		}
+
+		assertThat(gauge("blog.entry-cache.maximum-weight")).isEqualTo(1000.0);
+		assertThat(gauge("blog.entry-cache.eviction-weight")).isEqualTo(592.0);
+		assertThat(gauge("blog.entry-cache.weighted-size")).isEqualTo(592.0);
+		assertThat(client.isCached(99999L) ^ client.isCached(99998L)).isTrue();
+	}
+
+	BlogHttpClient blogHttpClient() {
+		return new BlogHttpClient(WebClient.builder(), this.meterRegistry, this.props,
+				new ReactiveResilience4JCircuitBreakerFactory(),
+				Tracing.newBuilder().build().tracer(),
+				new OperationTimeouts(this.props, this.meterRegistry),
+				new EntryDiskCache(this.props, Jackson2ObjectMapperBuilder.json(),
+						this.meterRegistry),
+				new FusedResilience(this.props, CircuitBreakerConfig.ofDefaults(),
+						circuitBreaker -> {
+						}),
+				Jackson2ObjectMapperBuilder.json());
+	}
+
+	double gauge(String name) {
+		return this.meterRegistry.get(name).meter().measure().iterator().next()
+				.getValue();
+	}
+
+	double revalidations(String mode, String result) {
+		return this.meterRegistry.counter("blog.entry.revalidation", "mode", mode,
+				"result", result).count();
+	}
+
+	static MockResponse entry() {
+		return new MockResponse()
+				.setHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+				.setBody(ENTRY);
+	}
+}
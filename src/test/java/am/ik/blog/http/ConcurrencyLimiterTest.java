@@ -0,0 +1,111 @@
+package am.ik.blog.http;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import am.ik.blog.BlogProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ConcurrencyLimiterTest {
+	MeterRegistry meterRegistry = new SimpleMeterRegistry();
+	BlogProperties.Concurrency props = new BlogProperties.Concurrency();
+
+	@Before
+	public void setup() {
+		this.props.setInitialLimit(2);
+		this.props.setMinLimit(1);
+	}
+
+	@Test
+	public void rejectOverLimit() {
+		this.props.setMaxQueueWait(Duration.ZERO);
+		ConcurrencyLimiter limiter = new ConcurrencyLimiter(this.props,
+				this.meterRegistry);
+		Disposable first = Mono.<String>never().transform(limiter.limit("test"))
+				.subscribe();
+		Mono.<String>never().transform(limiter.limit("test")).subscribe();
+
+		assertThatThrownBy(
+				() -> Mono.just("foo").transform(limiter.limit("test")).block())
+						.isInstanceOf(ConcurrencyLimitExceededException.class);
+		assertThat(gauge("blog.concurrency.in-flight")).isEqualTo(2.0);
+		assertThat(this.meterRegistry.get("blog.concurrency.calls")
+				.tag("result", "rejected").counter().count()).isEqualTo(1.0);
+
+		first.dispose();
+		assertThat(Mono.just("foo").transform(limiter.limit("test")).block())
+				.isEqualTo("foo");
+	}
+
+	@Test
+	public void queuedCallGetsReleasedPermit() {
+		this.props.setMaxQueueWait(Duration.ofSeconds(1));
+		ConcurrencyLimiter limiter = new ConcurrencyLimiter(this.props,
+				this.meterRegistry);
+		MonoProcessor<String> first = MonoProcessor.create();
+		first.transform(limiter.limit("test")).subscribe();
+		Mono.<String>never().transform(limiter.limit("test")).subscribe();
+		AtomicReference<String> result = new AtomicReference<>();
+
+		Mono.just("foo").transform(limiter.limit("test")).subscribe(result::set);
+		assertThat(gauge("blog.concurrency.queued")).isEqualTo(1.0);
+		assertThat(result.get()).isNull();
+
+		first.onNext("bar");
+		assertThat(result.get()).isEqualTo("foo");
+		assertThat(gauge("blog.concurrency.queued")).isZero();
+	}
+
+	@Test
+	public void releasePermitGrantedAsQueueWaitEnds() {
+		this.props.setInitialLimit(1);
+		this.props.setMaxLimit(1);
+		this.props.setMaxQueueWait(Duration.ofMillis(1));
+		ConcurrencyLimiter limiter = new ConcurrencyLimiter(this.props,
+				this.meterRegistry);
+
+		for (int i = 0; i < 200; i++) {
+			// the holder releases its permit around the time the waiter gives up
+			Mono<String> holder = Mono.delay(Duration.ofMillis(1)).map(x -> "foo")
+					.transform(limiter.limit("test"));
+			Mono<String> waiter = Mono.just("bar").transform(limiter.limit("test"))
+					.onErrorResume(ConcurrencyLimitExceededException.class,
+							e -> Mono.empty());
+			// cancelled from downstream while it may be granted a permit
+			Mono<String> cancelled = Mono.from(Mono.just("baz")
+					.transform(limiter.limit("test"))).timeout(Duration.ofMillis(1))
+					.onErrorResume(e -> Mono.empty());
+			Mono.when(holder, waiter, cancelled).block();
+		}
+
+		assertThat(gauge("blog.concurrency.in-flight")).isZero();
+		assertThat(gauge("blog.concurrency.queued")).isZero();
+	}
+
+	@Test
+	public void shrinkLimitOnTimeout() {
+		this.props.setInitialLimit(20);
+		ConcurrencyLimiter limiter = new ConcurrencyLimiter(this.props,
+				this.meterRegistry);
+
+		assertThatThrownBy(() -> Mono.error(new TimeoutException())
+				.transform(limiter.limit("test")).block())
+						.hasCauseInstanceOf(TimeoutException.class);
+		assertThat(limiter.currentLimit("test")).isEqualTo(18);
+		assertThat(gauge("blog.concurrency.in-flight")).isZero();
+	}
+
+	double gauge(String name) {
+		return this.meterRegistry.get(name).tag("name", "test").gauge().value();
+	}
+}
@@ -0,0 +1,87 @@
+package am.ik.blog.http;
+
+import am.ik.blog.BlogEntries;
+import am.ik.blog.BlogProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ConditionalFetcherTest {
+	MockWebServer server = new MockWebServer();
+	MeterRegistry meterRegistry = new SimpleMeterRegistry();
+	ConditionalFetcher<BlogEntries> fetcher;
+	WebClient webClient;
+
+	@Before
+	public void setup() throws Exception {
+		this.server.start();
+		this.webClient = WebClient.create(this.server.url("/").toString());
+		this.fetcher = new ConditionalFetcher<>("test",
+				ParameterizedTypeReference.forType(BlogEntries.class),
+				new BlogApiCodec(BlogProperties.Codec.JSON,
+						Jackson2ObjectMapperBuilder.json()),
+				new BlogProperties.ListingCache(), this.meterRegistry);
+	}
+
+	@After
+	public void shutdown() throws Exception {
+		this.server.shutdown();
+	}
+
+	@Test
+	public void reuseDecodedValueOnNotModified() throws Exception {
+		String body = "{\"content\":[{\"entryId\":100}]}";
+		this.server.enqueue(new MockResponse()
+				.setHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+				.setHeader(HttpHeaders.ETAG, "\"v1\"").setBody(body));
+		this.server.enqueue(new MockResponse().setResponseCode(304));
+
+		BlogEntries first = this.fetcher
+				.fetch(ListingKey.ALL, () -> this.webClient.get().uri("entries"))
+				.block();
+		BlogEntries second = this.fetcher
+				.fetch(ListingKey.ALL, () -> this.webClient.get().uri("entries"))
+				.block();
+
+		assertThat(second).isSameAs(first);
+		assertThat(this.server.takeRequest().getHeader(HttpHeaders.IF_NONE_MATCH))
+				.isNull();
+		assertThat(this.server.takeRequest().getHeader(HttpHeaders.IF_NONE_MATCH))
+				.isEqualTo("\"v1\"");
+		assertThat(this.meterRegistry.get("blog.upstream.saved").counter().count())
+				.isEqualTo(body.length());
+		assertThat(this.meterRegistry.get("blog.upstream.decode").timer().count())
+				.isEqualTo(1);
+	}
+
+	@Test
+	public void unconditionalWithoutValidators() throws Exception {
+		this.server.enqueue(new MockResponse()
+				.setHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+				.setBody("{\"content\":[]}"));
+		this.server.enqueue(new MockResponse()
+				.setHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+				.setBody("{\"content\":[]}"));
+
+		this.fetcher.fetch(ListingKey.ALL, () -> this.webClient.get().uri("entries"))
+				.block();
+		this.fetcher.fetch(ListingKey.ALL, () -> this.webClient.get().uri("entries"))
+				.block();
+
+		this.server.takeRequest();
+		assertThat(this.server.takeRequest().getHeader(HttpHeaders.IF_NONE_MATCH))
+				.isNull();
+	}
+}
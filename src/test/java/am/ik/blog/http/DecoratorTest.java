@@ -0,0 +1,81 @@
+package am.ik.blog.http;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import am.ik.blog.BlogProperties;
+import am.ik.blog.config.Resilience4JConfig;
+import brave.Tracing;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+import reactor.core.publisher.Mono;
+
+import org.springframework.cloud.circuitbreaker.commons.ReactiveCircuitBreakerFactory;
+import org.springframework.cloud.circuitbreaker.resilience4j.ReactiveResilience4JCircuitBreakerFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class DecoratorTest {
+	MeterRegistry meterRegistry = new SimpleMeterRegistry();
+	BlogProperties props = new BlogProperties();
+	ReactiveCircuitBreakerFactory circuitBreakerFactory = spy(
+			new ReactiveResilience4JCircuitBreakerFactory());
+	Decorator decorator = new Decorator(
+			new Retryer(Tracing.newBuilder().build().tracer(), this.props.getRetry(),
+					this.meterRegistry),
+			new OperationTimeouts(this.props, this.meterRegistry),
+			new ConcurrencyLimiter(this.props.getConcurrency(), this.meterRegistry),
+			this.circuitBreakerFactory, new FusedResilience(this.props,
+					CircuitBreakerConfig.ofDefaults(), circuitBreaker -> {
+					}));
+
+	@Test
+	public void buildPipelineOncePerOperation() {
+		for (int i = 0; i < 3; i++) {
+			assertThat(Mono.from(Mono.just("foo")
+					.transform(this.decorator.decorate("blog-ui.findTags"))).block())
+							.isEqualTo("foo");
+		}
+		assertThat(Mono.from(Mono.<String>error(new IllegalStateException())
+				.transform(this.decorator.decorate("blog-ui.findTags",
+						e -> Mono.just("bar"))))
+				.block()).isEqualTo("bar");
+
+		verify(this.circuitBreakerFactory, times(1)).create("blog-ui.findTags");
+		assertThat(this.decorator.decorate("blog-ui.findTags"))
+				.isSameAs(this.decorator.decorate("blog-ui.findTags"));
+	}
+
+	@Test
+	public void retrySlowAttemptWithinOverallLimit() {
+		this.props.getTimeLimit().getOperations().put("blog-ui.findTags",
+				Duration.ofMillis(200));
+		this.props.getRetry().setFirstBackoff(Duration.ofMillis(10));
+		OperationTimeouts timeouts = new OperationTimeouts(this.props,
+				this.meterRegistry);
+		ReactiveResilience4JCircuitBreakerFactory factory = new ReactiveResilience4JCircuitBreakerFactory();
+		new Resilience4JConfig().resilience4jCustomizer(this.meterRegistry, timeouts)
+				.customize(factory);
+		Decorator decorator = new Decorator(
+				new Retryer(Tracing.newBuilder().build().tracer(),
+						this.props.getRetry(), this.meterRegistry),
+				timeouts,
+				new ConcurrencyLimiter(this.props.getConcurrency(), this.meterRegistry),
+				factory, new FusedResilience(this.props,
+						CircuitBreakerConfig.ofDefaults(), circuitBreaker -> {
+						}));
+		AtomicInteger subscriptions = new AtomicInteger();
+		Mono<String> upstream = Mono.defer(() -> subscriptions.incrementAndGet() == 1
+				? Mono.delay(Duration.ofSeconds(1)).map(x -> "slow")
+				: Mono.just("foo"));
+
+		assertThat(Mono.from(upstream.transform(decorator.decorate("blog-ui.findTags")))
+				.block()).isEqualTo("foo");
+		assertThat(subscriptions.get()).isEqualTo(2);
+	}
+}
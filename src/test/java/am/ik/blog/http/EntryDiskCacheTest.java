@@ -0,0 +1,85 @@
+package am.ik.blog.http;
+
+import java.io.File;
+import java.time.OffsetDateTime;
+
+import am.ik.blog.BlogProperties;
+import am.ik.blog.model.AuthorBuilder;
+import am.ik.blog.model.Entry;
+import am.ik.blog.model.EntryBuilder;
+import am.ik.blog.model.FrontMatterBuilder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.util.unit.DataSize;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class EntryDiskCacheTest {
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void reloadOnStartup() throws Exception {
+		BlogProperties props = props(new File(this.folder.getRoot(), "entries.seg"),
+				DataSize.ofKilobytes(64));
+		EntryDiskCache cache = new EntryDiskCache(props,
+				Jackson2ObjectMapperBuilder.json(), new SimpleMeterRegistry());
+		cache.put(entry(1L, "foo"));
+		cache.put(entry(2L, "bar"));
+		cache.put(entry(1L, "baz"));
+		cache.destroy();
+
+		EntryDiskCache reloaded = new EntryDiskCache(props,
+				Jackson2ObjectMapperBuilder.json(), new SimpleMeterRegistry());
+		assertThat(reloaded.get(1L)).hasValueSatisfying(
+				stored -> assertThat(stored.getEntry().getContent()).isEqualTo("baz"));
+		assertThat(reloaded.get(2L)).hasValueSatisfying(
+				stored -> assertThat(stored.getEntry().getContent()).isEqualTo("bar"));
+		assertThat(reloaded.get(3L)).isEmpty();
+		reloaded.destroy();
+	}
+
+	@Test
+	public void compactWhenFull() throws Exception {
+		BlogProperties props = props(new File(this.folder.getRoot(), "entries.seg"),
+				DataSize.ofKilobytes(4));
+		EntryDiskCache cache = new EntryDiskCache(props,
+				Jackson2ObjectMapperBuilder.json(), new SimpleMeterRegistry());
+		for (long i = 0; i < 100; i++) {
+			cache.put(entry(i, "content" + i));
+		}
+		assertThat(cache.get(99L)).hasValueSatisfying(
+				stored -> assertThat(stored.getEntry().getContent())
+						.isEqualTo("content99"));
+		assertThat(cache.get(0L)).isEmpty();
+		cache.destroy();
+	}
+
+	static BlogProperties props(File file, DataSize capacity) {
+		BlogProperties props = new BlogProperties();
+		BlogProperties.EntryCache.Disk disk = props.getEntryCache().getDisk();
+		disk.setEnabled(true);
+		disk.setPath(file.getAbsolutePath());
+		disk.setCapacity(capacity);
+		return props;
+	}
+
+	static Entry entry(Long entryId, String content) {
+		OffsetDateTime date = OffsetDateTime.parse("2017-04-01T02:00:00+09:00");
+		return new EntryBuilder() //
+				.withEntryId(entryId) //
+				.withContent(content) //
+				.withFrontMatter(new FrontMatterBuilder() //
+						.withTitle("Hello World!!") //
+						.build()) //
+				.withCreated(new AuthorBuilder().withName("making").withDate(date)
+						.build()) //
+				.withUpdated(new AuthorBuilder().withName("making").withDate(date)
+						.build()) //
+				.build();
+	}
+}
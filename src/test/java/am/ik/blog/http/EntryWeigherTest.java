@@ -0,0 +1,34 @@
+package am.ik.blog.http;
+
+import am.ik.blog.model.Entry;
+import am.ik.blog.model.EntryBuilder;
+import org.junit.Test;
+
+import static am.ik.blog.BlogControllerTest.entry99999;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class EntryWeigherTest {
+
+	@Test
+	public void weighContentAndFrontMatter() {
+		// "This is a test data.", "Hello World!!", 3 tags and 3 categories
+		assertThat(EntryWeigher.weigh(entry99999()))
+				.isEqualTo(EntryWeigher.OVERHEAD + 40 + 26 + 3 * (16 + 10) + 3 * (16 + 2));
+	}
+
+	@Test
+	public void weighEntryWithoutContent() {
+		Entry entry = entry99999();
+		Entry excluded = new EntryBuilder() //
+				.withEntryId(entry.getEntryId()) //
+				.withCreated(entry.getCreated()) //
+				.withUpdated(entry.getUpdated()) //
+				.withFrontMatter(entry.getFrontMatter()) //
+				.build();
+
+		assertThat(EntryWeigher.weigh(excluded))
+				.isEqualTo(EntryWeigher.weigh(entry) - 2 * entry.getContent().length());
+		assertThat(EntryWeigher.weigh(new EntryBuilder().withEntryId(1L).build()))
+				.isEqualTo(EntryWeigher.OVERHEAD);
+	}
+}
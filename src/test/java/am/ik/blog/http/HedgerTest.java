@@ -0,0 +1,123 @@
+package am.ik.blog.http;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import am.ik.blog.BlogProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import reactor.core.publisher.Mono;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HedgerTest {
+	MeterRegistry meterRegistry = new SimpleMeterRegistry();
+	BlogProperties.Hedge props = new BlogProperties.Hedge();
+
+	@Before
+	public void setup() {
+		this.props.setEnabled(true);
+		this.props.setDelay(Duration.ofMillis(50));
+	}
+
+	@Test
+	public void hedgeWinsAndPrimaryIsCancelled() {
+		AtomicInteger subscriptions = new AtomicInteger();
+		AtomicBoolean primaryCancelled = new AtomicBoolean(false);
+		Mono<String> upstream = Mono.defer(() -> {
+			if (subscriptions.incrementAndGet() == 1) {
+				return Mono.delay(Duration.ofSeconds(5)).map(x -> "slow")
+						.doOnCancel(() -> primaryCancelled.set(true));
+			}
+			return Mono.just("fast");
+		});
+
+		String result = upstream
+				.transform(new Hedger(this.props, this.meterRegistry).hedge("test"))
+				.block();
+
+		assertThat(result).isEqualTo("fast");
+		assertThat(primaryCancelled.get()).isTrue();
+		assertThat(this.meterRegistry.get("blog.hedge.sent").counter().count())
+				.isEqualTo(1.0);
+		assertThat(this.meterRegistry.get("blog.hedge.won").counter().count())
+				.isEqualTo(1.0);
+		// the cancelled primary is recorded with the time it had taken so far
+		assertThat(this.meterRegistry.get("blog.hedge.latency").timer().count())
+				.isEqualTo(2);
+		assertThat(this.meterRegistry.get("blog.hedge.latency").timer()
+				.max(TimeUnit.MILLISECONDS)).isGreaterThanOrEqualTo(50);
+	}
+
+	@Test
+	public void fallBackToHedgeWhenPrimaryFails() {
+		AtomicInteger subscriptions = new AtomicInteger();
+		Mono<String> upstream = Mono.defer(() -> {
+			if (subscriptions.incrementAndGet() == 1) {
+				return Mono.delay(Duration.ofMillis(100))
+						.then(Mono.error(new IllegalStateException("failed")));
+			}
+			return Mono.delay(Duration.ofMillis(200)).map(x -> "hedged");
+		});
+
+		String result = upstream
+				.transform(new Hedger(this.props, this.meterRegistry).hedge("test"))
+				.block();
+
+		assertThat(result).isEqualTo("hedged");
+		assertThat(this.meterRegistry.get("blog.hedge.won").counter().count())
+				.isEqualTo(1.0);
+	}
+
+	@Test
+	public void noHedgeWhenPrimaryIsFast() {
+		AtomicInteger subscriptions = new AtomicInteger();
+		Mono<String> upstream = Mono.fromCallable(() -> {
+			subscriptions.incrementAndGet();
+			return "foo";
+		});
+
+		assertThat(upstream
+				.transform(new Hedger(this.props, this.meterRegistry).hedge("test"))
+				.block()).isEqualTo("foo");
+		assertThat(subscriptions.get()).isEqualTo(1);
+	}
+
+	@Test
+	public void adaptDelayToObservedLatency() {
+		this.props.setMinSamples(5);
+		this.props.setMinDelay(Duration.ofMillis(10));
+		this.props.setMaxBudget(0);
+		Hedger hedger = new Hedger(this.props, this.meterRegistry);
+		Mono<String> upstream = Mono.delay(Duration.ofMillis(100)).map(x -> "foo");
+
+		for (int i = 0; i < 4; i++) {
+			upstream.transform(hedger.hedge("test")).block();
+		}
+		assertThat(hedger.delay("test")).isEqualTo(Duration.ofMillis(50));
+
+		upstream.transform(hedger.hedge("test")).block();
+		assertThat(hedger.delay("test")).isBetween(Duration.ofMillis(90),
+				Duration.ofMillis(200));
+	}
+
+	@Test
+	public void hedgesAreCappedByBudget() {
+		this.props.setBudgetRatio(0);
+		this.props.setMaxBudget(1);
+		Hedger hedger = new Hedger(this.props, this.meterRegistry);
+		Mono<String> slow = Mono.delay(Duration.ofMillis(200)).map(x -> "slow");
+
+		slow.transform(hedger.hedge("test")).block();
+		slow.transform(hedger.hedge("test")).block();
+
+		assertThat(this.meterRegistry.get("blog.hedge.sent").counter().count())
+				.isEqualTo(1.0);
+		assertThat(this.meterRegistry.get("blog.hedge.rejected").counter().count())
+				.isEqualTo(1.0);
+	}
+}
@@ -0,0 +1,171 @@
+package am.ik.blog.http;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import am.ik.blog.BlogProperties;
+import brave.Tracing;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import reactor.core.publisher.Mono;
+import reactor.retry.RetryExhaustedException;
+
+import org.springframework.cloud.circuitbreaker.resilience4j.ReactiveResilience4JCircuitBreakerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ListingCacheTest {
+	MeterRegistry meterRegistry = new SimpleMeterRegistry();
+	BlogProperties props = new BlogProperties();
+	Decorator decorator;
+	ListingCache<String> listingCache;
+
+	@Before
+	public void setup() {
+		this.props.getRetry().setMax(0);
+		this.props.getListingCache().setEnabled(false);
+		this.decorator = new Decorator(
+				new Retryer(Tracing.newBuilder().build().tracer(), this.props.getRetry(),
+						this.meterRegistry),
+				new OperationTimeouts(this.props, this.meterRegistry),
+				new ConcurrencyLimiter(this.props.getConcurrency(), this.meterRegistry),
+				new ReactiveResilience4JCircuitBreakerFactory(),
+				new FusedResilience(this.props, CircuitBreakerConfig.ofDefaults(),
+						circuitBreaker -> {
+						}));
+		this.listingCache = listingCache();
+	}
+
+	@Test
+	public void serveLastKnownGoodOnOutage() {
+		assertThat(this.listingCache.get(ListingKey.ALL, () -> Mono.just("foo"))
+				.block()).isEqualTo("foo");
+
+		Degraded degraded = new Degraded();
+		String value = this.listingCache
+				.get(ListingKey.ALL, () -> Mono.error(error(HttpStatus.BAD_GATEWAY)))
+				.subscriberContext(context -> Degraded.put(context, degraded))
+				.block(Duration.ofSeconds(3));
+
+		assertThat(value).isEqualTo("foo");
+		assertThat(degraded.getOperations()).containsExactly("test");
+	}
+
+	@Test
+	public void propagateClientError() {
+		this.listingCache.get(ListingKey.ALL, () -> Mono.just("foo")).block();
+
+		assertThatThrownBy(() -> this.listingCache
+				.get(ListingKey.ALL, () -> Mono.error(error(HttpStatus.NOT_FOUND)))
+				.block()).isInstanceOf(WebClientResponseException.class);
+	}
+
+	@Test
+	public void propagateErrorWithoutLastKnownGood() {
+		assertThatThrownBy(() -> this.listingCache
+				.get(ListingKey.ALL, () -> Mono.error(error(HttpStatus.BAD_GATEWAY)))
+				.block()).isInstanceOf(RetryExhaustedException.class);
+	}
+
+	@Test
+	public void serveCachedValue() {
+		this.props.getListingCache().setEnabled(true);
+		this.listingCache = listingCache();
+		AtomicInteger subscriptions = new AtomicInteger();
+		Mono<String> upstream = Mono.fromCallable(() -> {
+			subscriptions.incrementAndGet();
+			return "foo";
+		});
+
+		assertThat(this.listingCache.get(ListingKey.ALL, () -> upstream).block())
+				.isEqualTo("foo");
+		assertThat(this.listingCache.get(ListingKey.ALL, () -> upstream).block())
+				.isEqualTo("foo");
+		assertThat(subscriptions.get()).isEqualTo(1);
+	}
+
+	@Test
+	public void refreshInBackgroundAfterRefreshAfter() throws Exception {
+		this.props.getListingCache().setEnabled(true);
+		this.props.getListingCache().setRefreshAfter(Duration.ofMillis(100));
+		this.listingCache = listingCache();
+		this.listingCache.get(ListingKey.ALL, () -> Mono.just("foo")).block();
+		Thread.sleep(200);
+		AtomicInteger subscriptions = new AtomicInteger();
+		Mono<String> upstream = Mono.fromCallable(() -> {
+			subscriptions.incrementAndGet();
+			return "bar";
+		});
+
+		// the cached value is served while it is being refreshed
+		assertThat(this.listingCache.get(ListingKey.ALL, () -> upstream).block())
+				.isEqualTo("foo");
+		for (int i = 0; i < 50 && subscriptions.get() == 0; i++) {
+			Thread.sleep(10);
+		}
+		Thread.sleep(50);
+
+		assertThat(this.listingCache.get(ListingKey.ALL, () -> upstream).block())
+				.isEqualTo("bar");
+		assertThat(subscriptions.get()).isEqualTo(1);
+	}
+
+	@Test
+	public void expireAfterTtl() throws Exception {
+		this.props.getListingCache().setEnabled(true);
+		this.props.getListingCache().setTtl(Duration.ofMillis(100));
+		this.listingCache = listingCache();
+		this.listingCache.get(ListingKey.ALL, () -> Mono.just("foo")).block();
+		Thread.sleep(200);
+
+		assertThat(this.listingCache.get(ListingKey.ALL, () -> Mono.just("bar"))
+				.block()).isEqualTo("bar");
+	}
+
+	@Test
+	public void markEveryJoinedSubscriberDegraded() throws Exception {
+		this.props.getListingCache().setEnabled(true);
+		this.props.getListingCache().setTtl(Duration.ofMillis(100));
+		this.listingCache = listingCache();
+		this.listingCache.get(ListingKey.ALL, () -> Mono.just("foo")).block();
+		Thread.sleep(200);
+
+		Mono<String> outage = Mono.delay(Duration.ofMillis(200))
+				.then(Mono.error(error(HttpStatus.BAD_GATEWAY)));
+		Degraded first = new Degraded();
+		Degraded second = new Degraded();
+		assertThat(Mono.zip(
+				this.listingCache.get(ListingKey.ALL, () -> outage)
+						.subscriberContext(context -> Degraded.put(context, first)),
+				this.listingCache.get(ListingKey.ALL, () -> outage)
+						.subscriberContext(context -> Degraded.put(context, second)))
+				.block(Duration.ofSeconds(3))).satisfies(t -> {
+					assertThat(t.getT1()).isEqualTo("foo");
+					assertThat(t.getT2()).isEqualTo("foo");
+				});
+
+		assertThat(first.getOperations()).containsExactly("test");
+		assertThat(second.getOperations()).containsExactly("test");
+		assertThat(this.meterRegistry.get("blog.upstream.coalesced").counter().count())
+				.isEqualTo(1.0);
+	}
+
+	ListingCache<String> listingCache() {
+		return new ListingCache<>("test", "testCache", this.decorator,
+				this.props.getListingCache(), this.meterRegistry);
+	}
+
+	static WebClientResponseException error(HttpStatus status) {
+		return WebClientResponseException.create(status.value(),
+				status.getReasonPhrase(), HttpHeaders.EMPTY, new byte[0],
+				StandardCharsets.UTF_8);
+	}
+}
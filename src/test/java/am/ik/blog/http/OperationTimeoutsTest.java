@@ -0,0 +1,94 @@
+package am.ik.blog.http;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import am.ik.blog.BlogProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+import reactor.core.publisher.Mono;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class OperationTimeoutsTest {
+	MeterRegistry meterRegistry = new SimpleMeterRegistry();
+	BlogProperties props = new BlogProperties();
+
+	@Test
+	public void timeoutPerOperation() {
+		this.props.getTimeLimit().getOperations().put("blog-ui.findTags",
+				Duration.ofMillis(50));
+		OperationTimeouts timeouts = new OperationTimeouts(this.props,
+				this.meterRegistry);
+
+		assertThat(timeouts.timeout("blog-ui.findTags")).isEqualTo(Duration.ofMillis(50));
+		assertThat(timeouts.timeout("blog-ui.findById"))
+				.isEqualTo(Duration.ofMillis(975));
+		assertThatThrownBy(() -> Mono
+				.from(Mono.delay(Duration.ofSeconds(1))
+						.transform(timeouts.timeLimit("blog-ui.findTags")))
+				.block()).hasCauseInstanceOf(TimeoutException.class);
+		assertThat(this.meterRegistry.get("blog.time-limit.timeout")
+				.tag("name", "blog-ui.findTags").timeGauge()
+				.value(TimeUnit.MILLISECONDS)).isEqualTo(50.0);
+	}
+
+	@Test
+	public void adaptiveTimeoutIsBounded() {
+		BlogProperties.TimeLimit.Adaptive adaptive = this.props.getTimeLimit()
+				.getAdaptive();
+		adaptive.setEnabled(true);
+		adaptive.setMinSamples(10);
+		adaptive.setFloor(Duration.ofMillis(100));
+		adaptive.setCeiling(Duration.ofSeconds(10));
+		OperationTimeouts timeouts = new OperationTimeouts(this.props,
+				this.meterRegistry);
+
+		assertThat(timeouts.timeout("blog-ui.findTags"))
+				.isEqualTo(Duration.ofMillis(975));
+		for (int i = 0; i < 10; i++) {
+			Mono.from(Mono.just("foo").transform(timeouts.timeLimit("blog-ui.findTags")))
+					.block();
+		}
+
+		assertThat(timeouts.timeout("blog-ui.findTags"))
+				.isEqualTo(Duration.ofMillis(100));
+		assertThat(timeouts.upperBound("blog-ui.findTags"))
+				.isEqualTo(Duration.ofSeconds(10));
+		assertThat(timeouts.overallLimit("blog-ui.findTags"))
+				.isEqualTo(Duration.ofSeconds(6));
+	}
+
+	@Test
+	public void shareCircuitBreakerTimeoutByDefault() {
+		OperationTimeouts timeouts = new OperationTimeouts(this.props,
+				this.meterRegistry);
+
+		// 4 attempts of 975ms, plus backoffs of at most 300ms, 600ms and 1200ms
+		assertThat(timeouts.timeout("blog-ui.findById"))
+				.isEqualTo(Duration.ofMillis(975));
+		assertThat(timeouts.overallLimit("blog-ui.findById"))
+				.isEqualTo(Duration.ofSeconds(6));
+	}
+
+	@Test
+	public void overallLimitCoversEveryAttemptAndBackoff() {
+		this.props.getTimeLimit().getOperations().put("blog-ui.findTags",
+				Duration.ofMillis(500));
+		BlogProperties.Retry retry = this.props.getRetry();
+		retry.setMax(2);
+		retry.setFirstBackoff(Duration.ofMillis(100));
+		retry.setMaxBackoff(Duration.ofMillis(1000));
+		retry.setFactor(2);
+		retry.setJitter(0.5);
+		OperationTimeouts timeouts = new OperationTimeouts(this.props,
+				this.meterRegistry);
+
+		// 3 attempts of 500ms, plus backoffs of at most 150ms and 300ms
+		assertThat(timeouts.overallLimit("blog-ui.findTags"))
+				.isEqualTo(Duration.ofMillis(1950));
+	}
+}
@@ -0,0 +1,131 @@
+package am.ik.blog.http;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import am.ik.blog.BlogProperties;
+import brave.Tracing;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerOpenException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.retry.RetryExhaustedException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ResilientMonoTest {
+	MeterRegistry meterRegistry = new SimpleMeterRegistry();
+	BlogProperties props = new BlogProperties();
+	CircuitBreaker circuitBreaker = CircuitBreaker.of("test",
+			CircuitBreakerConfig.custom().recordFailure(Retryer.retryable).build());
+	AtomicInteger subscriptions = new AtomicInteger();
+	ResilientMono.Policy policy;
+
+	@Before
+	public void setup() {
+		this.props.getRetry().setFirstBackoff(Duration.ofMillis(1));
+		this.props.getRetry().setMaxBackoff(Duration.ofMillis(10));
+		this.props.getTimeLimit().getOperations().put("test", Duration.ofMillis(100));
+		this.policy = new ResilientMono.Policy("test", this.circuitBreaker,
+				new Retryer(Tracing.newBuilder().build().tracer(), this.props.getRetry(),
+						this.meterRegistry),
+				new OperationTimeouts(this.props, this.meterRegistry),
+				Schedulers.parallel());
+	}
+
+	@Test
+	public void succeed() {
+		assertThat(resilient(Mono.just("foo")).block()).isEqualTo("foo");
+		assertThat(resilient(Mono.<String>empty()).block()).isNull();
+		assertThat(this.circuitBreaker.getMetrics().getNumberOfSuccessfulCalls())
+				.isEqualTo(2);
+		assertThat(this.meterRegistry.get("blog.time-limit.latency").timer().count())
+				.isEqualTo(2);
+	}
+
+	@Test
+	public void retryUntilSuccess() {
+		Mono<String> flaky = Mono.defer(() -> this.subscriptions.incrementAndGet() < 3
+				? Mono.error(new IllegalStateException("API is unavailable."))
+				: Mono.just("foo"));
+
+		assertThat(resilient(flaky).block()).isEqualTo("foo");
+		assertThat(this.subscriptions.get()).isEqualTo(3);
+		assertThat(this.circuitBreaker.getMetrics().getNumberOfSuccessfulCalls())
+				.isEqualTo(1);
+		assertThat(this.circuitBreaker.getMetrics().getNumberOfFailedCalls()).isZero();
+	}
+
+	@Test
+	public void retrySlowAttempt() {
+		Mono<String> slowOnce = Mono.defer(() -> this.subscriptions.incrementAndGet() == 1
+				? Mono.delay(Duration.ofSeconds(1)).map(x -> "slow")
+				: Mono.just("foo"));
+
+		assertThat(resilient(slowOnce).block()).isEqualTo("foo");
+		assertThat(this.subscriptions.get()).isEqualTo(2);
+		assertThat(this.circuitBreaker.getMetrics().getNumberOfSuccessfulCalls())
+				.isEqualTo(1);
+	}
+
+	@Test
+	public void timeOutEveryAttempt() {
+		Mono<String> slow = Mono.delay(Duration.ofSeconds(1)).map(x -> "foo")
+				.doOnSubscribe(s -> this.subscriptions.incrementAndGet());
+
+		assertThatThrownBy(() -> resilient(slow).block())
+				.isInstanceOf(RetryExhaustedException.class)
+				.hasCauseInstanceOf(TimeoutException.class);
+		assertThat(this.subscriptions.get()).isEqualTo(4);
+		assertThat(this.circuitBreaker.getMetrics().getNumberOfFailedCalls())
+				.isEqualTo(1);
+	}
+
+	@Test
+	public void giveCancelledCallAnIgnoredOutcome() {
+		AtomicInteger ignored = new AtomicInteger();
+		this.circuitBreaker.getEventPublisher()
+				.onIgnoredError(event -> ignored.incrementAndGet());
+
+		resilient(Mono.never()).subscribe().dispose();
+
+		assertThat(ignored.get()).isEqualTo(1);
+		assertThat(this.circuitBreaker.getMetrics().getNumberOfFailedCalls()).isZero();
+	}
+
+	@Test
+	public void retryUpToMax() {
+		Mono<String> failing = Mono.defer(() -> {
+			this.subscriptions.incrementAndGet();
+			return Mono.error(new IllegalStateException("API is unavailable."));
+		});
+
+		assertThatThrownBy(() -> resilient(failing).block())
+				.isInstanceOf(RetryExhaustedException.class);
+		assertThat(this.subscriptions.get()).isEqualTo(4);
+		assertThat(this.circuitBreaker.getMetrics().getNumberOfFailedCalls())
+				.isEqualTo(1);
+	}
+
+	@Test
+	public void rejectWhenOpen() {
+		this.circuitBreaker.transitionToOpenState();
+		Mono<String> upstream = Mono.just("foo")
+				.doOnSubscribe(s -> this.subscriptions.incrementAndGet());
+
+		assertThatThrownBy(() -> resilient(upstream).block())
+				.isInstanceOf(CircuitBreakerOpenException.class);
+		assertThat(this.subscriptions.get()).isZero();
+	}
+
+	Mono<String> resilient(Mono<String> upstream) {
+		return new ResilientMono<>(upstream, this.policy);
+	}
+}
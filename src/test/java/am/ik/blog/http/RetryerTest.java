@@ -0,0 +1,81 @@
+package am.ik.blog.http;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import am.ik.blog.BlogProperties;
+import brave.Tracing;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import reactor.core.publisher.Mono;
+import reactor.retry.RetryExhaustedException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class RetryerTest {
+	MeterRegistry meterRegistry = new SimpleMeterRegistry();
+	BlogProperties.Retry props = new BlogProperties.Retry();
+	AtomicInteger subscriptions = new AtomicInteger();
+	Mono<String> failing = Mono.defer(() -> {
+		this.subscriptions.incrementAndGet();
+		return Mono.error(new IllegalStateException("API is unavailable."));
+	});
+
+	@Before
+	public void setup() {
+		this.props.setFirstBackoff(Duration.ofMillis(1));
+		this.props.setMaxBackoff(Duration.ofMillis(10));
+	}
+
+	@Test
+	public void retryUpToMax() {
+		Retryer retryer = retryer();
+
+		assertThatThrownBy(() -> Mono.from(this.failing.transform(retryer.retry("test")))
+				.block()).isInstanceOf(RetryExhaustedException.class);
+		assertThat(this.subscriptions.get()).isEqualTo(4);
+		assertThat(this.meterRegistry.get("blog.retry.budget.available").gauge()
+				.value()).isEqualTo(this.props.getMaxBudget() - 3.0);
+	}
+
+	@Test
+	public void stopRetryingWhenBudgetIsExhausted() {
+		this.props.setBudgetRatio(0);
+		this.props.setMaxBudget(1);
+		Retryer retryer = retryer();
+
+		assertThatThrownBy(() -> Mono.from(this.failing.transform(retryer.retry("test")))
+				.block()).isInstanceOf(IllegalStateException.class);
+		assertThat(this.subscriptions.get()).isEqualTo(2);
+		assertThatThrownBy(() -> Mono.from(this.failing.transform(retryer.retry("test")))
+				.block()).isInstanceOf(IllegalStateException.class);
+		assertThat(this.subscriptions.get()).isEqualTo(3);
+		assertThat(this.meterRegistry.get("blog.retry.budget.exhausted").counter()
+				.count()).isEqualTo(2.0);
+		assertThat(this.meterRegistry.get("blog.retry.budget.available").gauge()
+				.value()).isZero();
+	}
+
+	@Test
+	public void successfulCallsRefillBudget() {
+		this.props.setBudgetRatio(0.5);
+		this.props.setMaxBudget(1);
+		Retryer retryer = retryer();
+		assertThatThrownBy(() -> Mono.from(this.failing.transform(retryer.retry("test")))
+				.block()).isInstanceOf(IllegalStateException.class);
+
+		Mono.from(Mono.just("foo").transform(retryer.retry("test"))).block();
+		Mono.from(Mono.just("foo").transform(retryer.retry("test"))).block();
+
+		assertThat(this.meterRegistry.get("blog.retry.budget.available").gauge()
+				.value()).isEqualTo(1.0);
+	}
+
+	Retryer retryer() {
+		return new Retryer(Tracing.newBuilder().build().tracer(), this.props,
+				this.meterRegistry);
+	}
+}
@@ -0,0 +1,70 @@
+package am.ik.blog.http;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SingleFlightTest {
+	MeterRegistry meterRegistry = new SimpleMeterRegistry();
+	SingleFlight<Long, String> singleFlight = new SingleFlight<>("test",
+			this.meterRegistry);
+
+	@Test
+	public void concurrentLookupsShareUpstream() {
+		AtomicInteger subscriptions = new AtomicInteger();
+		Mono<String> upstream = Mono.delay(Duration.ofMillis(200)) //
+				.map(x -> "foo") //
+				.doOnSubscribe(s -> subscriptions.incrementAndGet());
+
+		Mono<String> first = this.singleFlight.execute(1L, () -> upstream);
+		Mono<String> second = this.singleFlight.execute(1L, () -> upstream);
+
+		assertThat(Mono.zip(first, second).block()).satisfies(t -> {
+			assertThat(t.getT1()).isEqualTo("foo");
+			assertThat(t.getT2()).isEqualTo("foo");
+		});
+		assertThat(subscriptions.get()).isEqualTo(1);
+		assertThat(this.singleFlight.size()).isZero();
+		assertThat(this.meterRegistry.get("blog.upstream.coalesced").counter().count())
+				.isEqualTo(1.0);
+	}
+
+	@Test
+	public void releaseKeyAfterCompletion() {
+		AtomicInteger subscriptions = new AtomicInteger();
+		Mono<String> upstream = Mono.just("foo")
+				.doOnSubscribe(s -> subscriptions.incrementAndGet());
+
+		assertThat(this.singleFlight.execute(1L, () -> upstream).block())
+				.isEqualTo("foo");
+		assertThat(this.singleFlight.execute(1L, () -> upstream).block())
+				.isEqualTo("foo");
+		assertThat(subscriptions.get()).isEqualTo(2);
+	}
+
+	@Test
+	public void cancelUpstreamOnlyWhenAllSubscribersCancel() {
+		AtomicBoolean cancelled = new AtomicBoolean(false);
+		Mono<String> upstream = Mono.delay(Duration.ofMillis(200)) //
+				.map(x -> "foo") //
+				.doOnCancel(() -> cancelled.set(true));
+
+		Disposable first = this.singleFlight.execute(1L, () -> upstream).subscribe();
+		Mono<String> second = this.singleFlight.execute(1L, () -> upstream);
+		Disposable third = second.subscribe();
+
+		first.dispose();
+		assertThat(cancelled.get()).isFalse();
+		third.dispose();
+		assertThat(cancelled.get()).isTrue();
+		assertThat(this.singleFlight.size()).isZero();
+	}
+}
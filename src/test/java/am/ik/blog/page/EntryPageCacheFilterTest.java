@@ -0,0 +1,133 @@
+package am.ik.blog.page;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import am.ik.blog.BlogClient;
+import am.ik.blog.BlogProperties;
+import am.ik.blog.BlogUiController;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import reactor.core.publisher.Mono;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.reactive.HandlerMapping;
+import org.springframework.web.server.WebFilterChain;
+
+import static am.ik.blog.BlogControllerTest.entry99999;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+public class EntryPageCacheFilterTest {
+	BlogClient blogClient = mock(BlogClient.class);
+	EntryPageCacheFilter filter = new EntryPageCacheFilter(this.blogClient,
+			new BlogProperties(), new SimpleMeterRegistry());
+	AtomicInteger renders = new AtomicInteger();
+	WebFilterChain chain = exchange -> {
+		this.renders.incrementAndGet();
+		assertThat(exchange.<Mono<?>> getAttribute(BlogUiController.ENTRY_ATTRIBUTE))
+				.isNotNull();
+		exchange.getResponse().getHeaders().setContentType(MediaType.TEXT_HTML);
+		DataBuffer body = exchange.getResponse().bufferFactory()
+				.wrap("<html>Hello</html>".getBytes(StandardCharsets.UTF_8));
+		return exchange.getResponse().writeWith(Mono.just(body));
+	};
+
+	@Before
+	public void setup() {
+		given(this.blogClient.findById(99999L)).willReturn(Mono.just(entry99999()));
+	}
+
+	@Test
+	public void renderOnceThenServeFromCache() {
+		MockServerWebExchange first = MockServerWebExchange
+				.from(MockServerHttpRequest.get("/entries/99999"));
+		this.filter.filter(first, this.chain).block();
+		MockServerWebExchange second = MockServerWebExchange
+				.from(MockServerHttpRequest.get("/entries/99999"));
+		this.filter.filter(second, this.chain).block();
+
+		assertThat(this.renders.get()).isEqualTo(1);
+		assertThat(second.getResponse().getBodyAsString().block())
+				.isEqualTo("<html>Hello</html>");
+		assertThat(second.getResponse().getHeaders().getLastModified())
+				.isEqualTo(entry99999().getUpdated().getDate().toInstant()
+						.toEpochMilli());
+	}
+
+	@Test
+	public void tagCachedPageWithEntryPattern() {
+		this.filter.filter(
+				MockServerWebExchange.from(MockServerHttpRequest.get("/entries/99999")),
+				this.chain).block();
+		MockServerWebExchange cached = MockServerWebExchange
+				.from(MockServerHttpRequest.get("/entries/99999"));
+		this.filter.filter(cached, this.chain).block();
+
+		assertThat(this.renders.get()).isEqualTo(1);
+		assertThat(cached
+				.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE)
+				.toString()).isEqualTo("/entries/{entryId}");
+	}
+
+	@Test
+	public void serveGzipVariant() {
+		this.filter.filter(
+				MockServerWebExchange.from(MockServerHttpRequest.get("/entries/99999")),
+				this.chain).block();
+		MockServerWebExchange gzip = MockServerWebExchange
+				.from(MockServerHttpRequest.get("/entries/99999")
+						.header(HttpHeaders.ACCEPT_ENCODING, "gzip"));
+		this.filter.filter(gzip, this.chain).block();
+
+		assertThat(gzip.getResponse().getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING))
+				.isEqualTo("gzip");
+	}
+
+	@Test
+	public void refuseGzipWithZeroQuality() {
+		this.filter.filter(
+				MockServerWebExchange.from(MockServerHttpRequest.get("/entries/99999")),
+				this.chain).block();
+		MockServerWebExchange identity = MockServerWebExchange
+				.from(MockServerHttpRequest.get("/entries/99999")
+						.header(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0"));
+		this.filter.filter(identity, this.chain).block();
+
+		assertThat(identity.getResponse().getHeaders()
+				.getFirst(HttpHeaders.CONTENT_ENCODING)).isNull();
+	}
+
+	@Test
+	public void keyedByLocale() {
+		this.filter.filter(MockServerWebExchange.from(MockServerHttpRequest
+				.get("/entries/99999").header(HttpHeaders.ACCEPT_LANGUAGE, "ja")),
+				this.chain).block();
+		this.filter.filter(MockServerWebExchange.from(MockServerHttpRequest
+				.get("/entries/99999").header(HttpHeaders.ACCEPT_LANGUAGE, "en")),
+				this.chain).block();
+
+		assertThat(this.renders.get()).isEqualTo(2);
+	}
+
+	@Test
+	public void notModifiedFromCache() {
+		this.filter.filter(
+				MockServerWebExchange.from(MockServerHttpRequest.get("/entries/99999")),
+				this.chain).block();
+		MockServerWebExchange conditional = MockServerWebExchange
+				.from(MockServerHttpRequest.get("/entries/99999").ifModifiedSince(
+						entry99999().getUpdated().getDate().toInstant().toEpochMilli()));
+		this.filter.filter(conditional, this.chain).block();
+
+		assertThat(conditional.getResponse().getStatusCode())
+				.isEqualTo(HttpStatus.NOT_MODIFIED);
+	}
+}
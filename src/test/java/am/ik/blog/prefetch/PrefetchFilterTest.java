@@ -0,0 +1,110 @@
+package am.ik.blog.prefetch;
+
+import java.time.OffsetDateTime;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import am.ik.blog.BlogClient;
+import am.ik.blog.BlogProperties;
+import am.ik.blog.model.AuthorBuilder;
+import am.ik.blog.model.EntryBuilder;
+import am.ik.blog.renderer.EntryRenderer;
+import am.ik.marked4j.MarkedBuilder;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import reactor.core.publisher.Mono;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+public class PrefetchFilterTest {
+	MeterRegistry meterRegistry = new SimpleMeterRegistry();
+	BlogClient blogClient = mock(BlogClient.class);
+	BlogProperties props = new BlogProperties();
+	AtomicBoolean chained = new AtomicBoolean(false);
+	WebFilterChain chain = exchange -> Mono.fromRunnable(() -> this.chained.set(true));
+
+	@Before
+	public void setup() {
+		given(this.blogClient.findById(anyLong()))
+				.willReturn(Mono.just(new EntryBuilder() //
+						.withEntryId(100L) //
+						.withContent("* foo") //
+						.withUpdated(new AuthorBuilder().withName("making")
+								.withDate(OffsetDateTime
+										.parse("2017-04-01T02:00:00+09:00"))
+								.build()) //
+						.build()));
+	}
+
+	@Test
+	public void prefetchQueryIsAnsweredEarly() {
+		MockServerWebExchange exchange = MockServerWebExchange
+				.from(MockServerHttpRequest.get("/entries/100?prefetch"));
+		prefetchFilter().filter(exchange, this.chain).block();
+
+		assertThat(exchange.getResponse().getStatusCode())
+				.isEqualTo(HttpStatus.NO_CONTENT);
+		assertThat(this.chained.get()).isFalse();
+		verify(this.blogClient).findById(100L);
+		assertThat(this.meterRegistry.get("blog.entry.render").timer().count())
+				.isEqualTo(1);
+	}
+
+	@Test
+	public void secPurposeHeaderIsAnsweredEarly() {
+		MockServerWebExchange exchange = MockServerWebExchange.from(
+				MockServerHttpRequest.get("/entries/100").header("Sec-Purpose", "prefetch"));
+		prefetchFilter().filter(exchange, this.chain).block();
+
+		assertThat(exchange.getResponse().getStatusCode())
+				.isEqualTo(HttpStatus.NO_CONTENT);
+	}
+
+	@Test
+	public void regularRequestIsRendered() {
+		MockServerWebExchange exchange = MockServerWebExchange.from(
+				MockServerHttpRequest.get("/entries/100").header("Sec-Purpose",
+						"prefetch;prerender"));
+		prefetchFilter().filter(exchange, this.chain).block();
+
+		assertThat(this.chained.get()).isTrue();
+		verify(this.blogClient, never()).findById(anyLong());
+	}
+
+	@Test
+	public void rateLimited() {
+		this.props.getPrefetch().setPermitsPerSecond(1);
+		this.props.getPrefetch().setBurst(1);
+		PrefetchFilter prefetchFilter = prefetchFilter();
+		MockServerWebExchange first = MockServerWebExchange
+				.from(MockServerHttpRequest.get("/entries/100?prefetch"));
+		MockServerWebExchange second = MockServerWebExchange
+				.from(MockServerHttpRequest.get("/entries/100?prefetch"));
+		prefetchFilter.filter(first, this.chain).block();
+		prefetchFilter.filter(second, this.chain).block();
+
+		assertThat(first.getResponse().getStatusCode()).isEqualTo(HttpStatus.NO_CONTENT);
+		assertThat(second.getResponse().getStatusCode())
+				.isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+		assertThat(this.meterRegistry.get("blog.prefetch.requests")
+				.tag("result", "rate_limited").counter().count()).isEqualTo(1.0);
+	}
+
+	PrefetchFilter prefetchFilter() {
+		return new PrefetchFilter(this.blogClient,
+				new EntryRenderer(new MarkedBuilder().build(), this.meterRegistry,
+						this.props),
+				this.props, this.meterRegistry);
+	}
+}
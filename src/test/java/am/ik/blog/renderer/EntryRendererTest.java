@@ -0,0 +1,61 @@
+package am.ik.blog.renderer;
+
+import java.time.OffsetDateTime;
+
+import am.ik.blog.BlogProperties;
+import am.ik.blog.model.AuthorBuilder;
+import am.ik.blog.model.Entry;
+import am.ik.blog.model.EntryBuilder;
+import am.ik.marked4j.MarkedBuilder;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class EntryRendererTest {
+	MeterRegistry meterRegistry;
+	EntryRenderer entryRenderer;
+
+	@Before
+	public void setup() {
+		this.meterRegistry = new SimpleMeterRegistry();
+		this.entryRenderer = new EntryRenderer(new MarkedBuilder().build(),
+				this.meterRegistry, new BlogProperties());
+	}
+
+	@Test
+	public void renderOncePerRevision() {
+		Entry entry = entry("* foo", "2017-04-01T02:00:00+09:00");
+
+		assertThat(this.entryRenderer.render(entry)).contains("<li>foo</li>");
+		assertThat(this.entryRenderer.render(entry)).contains("<li>foo</li>");
+		assertThat(renderCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void renderAgainWhenUpdated() {
+		Entry entry = entry("* foo", "2017-04-01T02:00:00+09:00");
+		Entry updated = entry("* bar", "2017-04-02T02:00:00+09:00");
+
+		assertThat(this.entryRenderer.render(entry)).contains("<li>foo</li>");
+		assertThat(this.entryRenderer.render(updated)).contains("<li>bar</li>");
+		assertThat(renderCount()).isEqualTo(2);
+	}
+
+	long renderCount() {
+		return this.meterRegistry.get("blog.entry.render").timer().count();
+	}
+
+	static Entry entry(String content, String updated) {
+		return new EntryBuilder() //
+				.withEntryId(100L) //
+				.withContent(content) //
+				.withUpdated(new AuthorBuilder() //
+						.withName("making") //
+						.withDate(OffsetDateTime.parse(updated)) //
+						.build()) //
+				.build();
+	}
+}
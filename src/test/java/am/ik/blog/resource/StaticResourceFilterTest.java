@@ -0,0 +1,120 @@
+package am.ik.blog.resource;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import am.ik.blog.BlogProperties;
+import org.junit.Test;
+import reactor.core.publisher.Mono;
+
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.server.WebFilterChain;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class StaticResourceFilterTest {
+	StaticResourceFilter filter = new StaticResourceFilter(new BlogProperties());
+	WebFilterChain chain = exchange -> Mono.error(new AssertionError("chained"));
+
+	@Test
+	public void serveFromMemory() {
+		MockServerWebExchange exchange = MockServerWebExchange
+				.from(MockServerHttpRequest.get("/robots.txt"));
+		this.filter.filter(exchange, this.chain).block();
+
+		HttpHeaders headers = exchange.getResponse().getHeaders();
+		assertThat(headers.getContentType().isCompatibleWith(MediaType.TEXT_PLAIN))
+				.isTrue();
+		assertThat(headers.getETag()).isNotNull();
+		assertThat(headers.getCacheControl()).contains("immutable");
+		assertThat(exchange.getResponse().getBodyAsString().block()).isNotEmpty();
+	}
+
+	@Test
+	public void serveGzipVariant() throws Exception {
+		MockServerWebExchange exchange = MockServerWebExchange
+				.from(MockServerHttpRequest.get("/manifest.json")
+						.header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate"));
+		this.filter.filter(exchange, this.chain).block();
+
+		assertThat(exchange.getResponse().getHeaders()
+				.getFirst(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+		byte[] compressed = DataBufferUtils.join(exchange.getResponse().getBody())
+				.map(buffer -> {
+					byte[] bytes = new byte[buffer.readableByteCount()];
+					buffer.read(bytes);
+					return bytes;
+				}).block();
+		String json = StreamUtils.copyToString(
+				new GZIPInputStream(new ByteArrayInputStream(compressed)),
+				StandardCharsets.UTF_8);
+		assertThat(json).contains("{");
+	}
+
+	@Test
+	public void variantSpecificEtag() {
+		MockServerWebExchange identity = MockServerWebExchange
+				.from(MockServerHttpRequest.get("/manifest.json"));
+		this.filter.filter(identity, this.chain).block();
+		MockServerWebExchange gzip = MockServerWebExchange
+				.from(MockServerHttpRequest.get("/manifest.json")
+						.header(HttpHeaders.ACCEPT_ENCODING, "gzip"));
+		this.filter.filter(gzip, this.chain).block();
+
+		String identityEtag = identity.getResponse().getHeaders().getETag();
+		String gzipEtag = gzip.getResponse().getHeaders().getETag();
+		assertThat(gzipEtag).isNotEqualTo(identityEtag);
+		assertThat(gzip.getResponse().getHeaders().getVary())
+				.contains(HttpHeaders.ACCEPT_ENCODING);
+
+		MockServerWebExchange revalidate = MockServerWebExchange
+				.from(MockServerHttpRequest.get("/manifest.json")
+						.ifNoneMatch(gzipEtag));
+		this.filter.filter(revalidate, this.chain).block();
+		assertThat(revalidate.getResponse().getStatusCode()).isNotEqualTo(
+				HttpStatus.NOT_MODIFIED);
+	}
+
+	@Test
+	public void refuseGzipWithZeroQuality() {
+		MockServerWebExchange exchange = MockServerWebExchange
+				.from(MockServerHttpRequest.get("/manifest.json")
+						.header(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0, identity"));
+		this.filter.filter(exchange, this.chain).block();
+
+		assertThat(exchange.getResponse().getHeaders()
+				.getFirst(HttpHeaders.CONTENT_ENCODING)).isNull();
+		assertThat(exchange.getResponse().getBodyAsString().block()).contains("{");
+	}
+
+	@Test
+	public void notModified() {
+		MockServerWebExchange first = MockServerWebExchange
+				.from(MockServerHttpRequest.get("/favicon.ico"));
+		this.filter.filter(first, this.chain).block();
+		String etag = first.getResponse().getHeaders().getETag();
+
+		MockServerWebExchange second = MockServerWebExchange
+				.from(MockServerHttpRequest.get("/favicon.ico").ifNoneMatch(etag));
+		this.filter.filter(second, this.chain).block();
+		assertThat(second.getResponse().getStatusCode())
+				.isEqualTo(HttpStatus.NOT_MODIFIED);
+	}
+
+	@Test
+	public void passThroughUnknownPaths() {
+		MockServerWebExchange exchange = MockServerWebExchange
+				.from(MockServerHttpRequest.get("/entries/1"));
+		boolean[] chained = new boolean[1];
+		this.filter.filter(exchange, e -> Mono.fromRunnable(() -> chained[0] = true))
+				.block();
+		assertThat(chained[0]).isTrue();
+	}
+}
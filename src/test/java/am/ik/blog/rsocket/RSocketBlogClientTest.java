@@ -0,0 +1,137 @@
+package am.ik.blog.rsocket;
+
+import java.net.URI;
+import java.time.OffsetDateTime;
+import java.util.List;
+
+import am.ik.blog.BlogEntries;
+import am.ik.blog.BlogProperties;
+import am.ik.blog.http.FusedResilience;
+import am.ik.blog.http.OperationTimeouts;
+import am.ik.blog.model.AuthorBuilder;
+import am.ik.blog.model.Entry;
+import am.ik.blog.model.EntryBuilder;
+import am.ik.blog.model.FrontMatterBuilder;
+import brave.Tracing;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.rsocket.AbstractRSocket;
+import io.rsocket.Payload;
+import io.rsocket.RSocketFactory;
+import io.rsocket.transport.netty.server.CloseableChannel;
+import io.rsocket.transport.netty.server.TcpServerTransport;
+import io.rsocket.util.DefaultPayload;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import org.springframework.cloud.circuitbreaker.resilience4j.ReactiveResilience4JCircuitBreakerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.messaging.rsocket.RSocketRequester;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RSocketBlogClientTest {
+	ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+	CloseableChannel server;
+	RSocketBlogClient client;
+
+	@Before
+	public void setup() {
+		this.server = RSocketFactory.receive() //
+				.acceptor((setup, sendingSocket) -> Mono.just(new StandInBlogApi())) //
+				.transport(TcpServerTransport.create("localhost", 0)) //
+				.start() //
+				.block();
+		BlogProperties props = new BlogProperties();
+		props.getRsocket().setUri(URI.create(
+				"tcp://localhost:" + this.server.address().getPort()));
+		props.getRsocket().setCodec(BlogProperties.Codec.JSON);
+		SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+		this.client = new RSocketBlogClient(RSocketRequester.builder(), props,
+				new ReactiveResilience4JCircuitBreakerFactory(),
+				Tracing.newBuilder().build().tracer(), meterRegistry,
+				new OperationTimeouts(props, meterRegistry),
+				new FusedResilience(props, CircuitBreakerConfig.ofDefaults(),
+						circuitBreaker -> {
+						}),
+				Jackson2ObjectMapperBuilder.json());
+	}
+
+	@After
+	public void tearDown() {
+		this.client.destroy();
+		this.server.dispose();
+	}
+
+	@Test
+	public void findById() {
+		Entry entry = this.client.findById(100L).block();
+		assertThat(entry.getEntryId()).isEqualTo(100L);
+		assertThat(entry.getFrontMatter().getTitle()).isEqualTo("Hello 100");
+	}
+
+	@Test
+	public void findAllOverSingleConnection() {
+		BlogEntries entries = this.client.findAll(PageRequest.of(0, 10)).block();
+		assertThat(entries.getContent()).extracting(Entry::getEntryId)
+				.containsExactly(2L, 1L);
+		List<Entry> streamed = this.client.streamAll(PageRequest.of(0, 10))
+				.collectList().block();
+		assertThat(streamed).extracting(Entry::getEntryId).containsExactly(2L, 1L);
+		assertThat(this.client.requester().block())
+				.isSameAs(this.client.requester().block());
+	}
+
+	class StandInBlogApi extends AbstractRSocket {
+
+		@Override
+		public Mono<Payload> requestResponse(Payload payload) {
+			String route = payload.getMetadataUtf8();
+			payload.release();
+			if (route.contains("entries.100")) {
+				return Mono.fromCallable(() -> DefaultPayload
+						.create(objectMapper.writeValueAsBytes(entry(100L))));
+			}
+			return Mono.error(new IllegalArgumentException("Unknown route " + route));
+		}
+
+		@Override
+		public Flux<Payload> requestStream(Payload payload) {
+			String route = payload.getMetadataUtf8();
+			payload.release();
+			if (route.contains("entries")) {
+				return Flux.just(entry(2L), entry(1L)) //
+						.map(entry -> {
+							try {
+								return DefaultPayload
+										.create(objectMapper.writeValueAsBytes(entry));
+							}
+							catch (Exception e) {
+								throw new IllegalStateException(e);
+							}
+						});
+			}
+			return Flux.error(new IllegalArgumentException("Unknown route " + route));
+		}
+	}
+
+	static Entry entry(Long entryId) {
+		OffsetDateTime date = OffsetDateTime.parse("2017-04-01T02:00:00+09:00");
+		return new EntryBuilder() //
+				.withEntryId(entryId) //
+				.withContent("Hello") //
+				.withFrontMatter(new FrontMatterBuilder() //
+						.withTitle("Hello " + entryId) //
+						.build()) //
+				.withCreated(
+						new AuthorBuilder().withName("making").withDate(date).build()) //
+				.withUpdated(
+						new AuthorBuilder().withName("making").withDate(date).build()) //
+				.build();
+	}
+}
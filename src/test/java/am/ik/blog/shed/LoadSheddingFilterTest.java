@@ -0,0 +1,101 @@
+package am.ik.blog.shed;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import am.ik.blog.BlogClient;
+import am.ik.blog.BlogProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+import reactor.core.publisher.Mono;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+public class LoadSheddingFilterTest {
+	MeterRegistry meterRegistry = new SimpleMeterRegistry();
+	BlogClient blogClient = mock(BlogClient.class);
+	BlogProperties props = new BlogProperties();
+	AtomicReference<Duration> lag = new AtomicReference<>(Duration.ZERO);
+	AtomicBoolean chained = new AtomicBoolean(false);
+	WebFilterChain chain = exchange -> Mono.fromRunnable(() -> this.chained.set(true));
+
+	@Test
+	public void admitWhenNotOverloaded() {
+		MockServerWebExchange exchange = MockServerWebExchange
+				.from(MockServerHttpRequest.get("/tags"));
+		loadSheddingFilter().filter(exchange, this.chain).block();
+
+		assertThat(this.chained.get()).isTrue();
+		assertThat(exchange.getResponse().getStatusCode()).isNull();
+	}
+
+	@Test
+	public void shedWhenEventLoopLags() {
+		this.lag.set(Duration.ofSeconds(1));
+		MockServerWebExchange exchange = MockServerWebExchange
+				.from(MockServerHttpRequest.get("/tags"));
+		loadSheddingFilter().filter(exchange, this.chain).block();
+
+		assertThat(this.chained.get()).isFalse();
+		assertThat(exchange.getResponse().getStatusCode())
+				.isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+		assertThat(exchange.getResponse().getHeaders().getFirst("Retry-After"))
+				.isEqualTo("1");
+		assertThat(this.meterRegistry.get("blog.shed.requests").tag("uri", "/tags")
+				.tag("result", "shed").counter().count()).isEqualTo(1.0);
+	}
+
+	@Test
+	public void shedWhenTooManyInFlight() {
+		this.props.getLoadShedding().setMaxInFlight(1);
+		LoadSheddingFilter filter = loadSheddingFilter();
+		filter.filter(MockServerWebExchange.from(MockServerHttpRequest.get("/tags")),
+				exchange -> Mono.never()).subscribe();
+
+		MockServerWebExchange exchange = MockServerWebExchange
+				.from(MockServerHttpRequest.get("/categories"));
+		filter.filter(exchange, this.chain).block();
+
+		assertThat(this.chained.get()).isFalse();
+		assertThat(exchange.getResponse().getStatusCode())
+				.isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+	}
+
+	@Test
+	public void admitCachedEntryWhenOverloaded() {
+		this.lag.set(Duration.ofSeconds(1));
+		given(this.blogClient.isCached(100L)).willReturn(true);
+		MockServerWebExchange exchange = MockServerWebExchange
+				.from(MockServerHttpRequest.get("/entries/100"));
+		loadSheddingFilter().filter(exchange, this.chain).block();
+
+		assertThat(this.chained.get()).isTrue();
+		assertThat(this.meterRegistry.get("blog.shed.requests")
+				.tag("uri", "/entries/{entryId}").tag("result", "admitted_cached")
+				.counter().count()).isEqualTo(1.0);
+	}
+
+	@Test
+	public void neverShedActuator() {
+		this.lag.set(Duration.ofSeconds(1));
+		MockServerWebExchange exchange = MockServerWebExchange
+				.from(MockServerHttpRequest.get("/actuator/health"));
+		loadSheddingFilter().filter(exchange, this.chain).block();
+
+		assertThat(this.chained.get()).isTrue();
+	}
+
+	LoadSheddingFilter loadSheddingFilter() {
+		return new LoadSheddingFilter(this.blogClient, this.props, this.lag::get,
+				this.meterRegistry);
+	}
+}
@@ -0,0 +1,99 @@
+package am.ik.blog.warmup;
+
+import java.time.OffsetDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+
+import am.ik.blog.BlogClient;
+import am.ik.blog.BlogEntries;
+import am.ik.blog.BlogProperties;
+import am.ik.blog.model.AuthorBuilder;
+import am.ik.blog.model.Entry;
+import am.ik.blog.model.EntryBuilder;
+import am.ik.blog.renderer.EntryRenderer;
+import am.ik.marked4j.MarkedBuilder;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import reactor.core.publisher.Mono;
+
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.data.domain.PageRequest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+public class CacheWarmerTest {
+	MeterRegistry meterRegistry = new SimpleMeterRegistry();
+	BlogClient blogClient = mock(BlogClient.class);
+	BlogProperties props = new BlogProperties();
+
+	@Before
+	public void setup() {
+		this.props.getWarmup().setEnabled(true);
+		this.props.getWarmup().setListingPages(1);
+		this.props.getWarmup().setEntries(2);
+		given(this.blogClient.findAll(any())).willReturn(Mono.just(new BlogEntries(
+				Arrays.asList(entry(1L, "2017-04-01T02:00:00+09:00"),
+						entry(3L, "2017-04-03T02:00:00+09:00"),
+						entry(2L, "2017-04-02T02:00:00+09:00")))));
+		given(this.blogClient.findById(anyLong()))
+				.willAnswer(invocation -> Mono.just(entry(invocation.getArgument(0),
+						"2017-04-01T02:00:00+09:00")));
+		given(this.blogClient.findTags()).willReturn(Mono.just(Collections.emptyList()));
+		given(this.blogClient.findCategories())
+				.willReturn(Mono.just(Collections.emptyList()));
+	}
+
+	@Test
+	public void warmRecentlyUpdatedEntries() {
+		CacheWarmer warmer = cacheWarmer();
+		assertThat(warmer.health().getStatus()).isEqualTo(Status.OUT_OF_SERVICE);
+
+		warmer.warmup().block();
+
+		assertThat(warmer.health().getStatus()).isEqualTo(Status.UP);
+		verify(this.blogClient).findAll(PageRequest.of(0, 50));
+		verify(this.blogClient).findById(3L);
+		verify(this.blogClient).findById(2L);
+		verify(this.blogClient, never()).findById(1L);
+		assertThat(this.meterRegistry.get("blog.warmup.completed").gauge().value())
+				.isEqualTo(5.0);
+		assertThat(this.meterRegistry.get("blog.entry.render").timer().count())
+				.isEqualTo(2);
+	}
+
+	@Test
+	public void readyWhenDisabled() {
+		this.props.getWarmup().setEnabled(false);
+		CacheWarmer warmer = cacheWarmer();
+		assertThat(warmer.health().getStatus()).isEqualTo(Status.UP);
+
+		warmer.warmup().block();
+		verify(this.blogClient, never()).findAll(any());
+	}
+
+	CacheWarmer cacheWarmer() {
+		EntryRenderer entryRenderer = new EntryRenderer(new MarkedBuilder().build(),
+				this.meterRegistry, this.props);
+		return new CacheWarmer(this.blogClient, entryRenderer, this.props,
+				this.meterRegistry);
+	}
+
+	static Entry entry(Long entryId, String updated) {
+		return new EntryBuilder() //
+				.withEntryId(entryId) //
+				.withContent("* " + entryId) //
+				.withUpdated(new AuthorBuilder() //
+						.withName("making") //
+						.withDate(OffsetDateTime.parse(updated)) //
+						.build()) //
+				.build();
+	}
+}